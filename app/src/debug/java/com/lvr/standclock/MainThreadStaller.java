@@ -0,0 +1,47 @@
+package com.lvr.standclock;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Test harness that blocks the main thread for a while at a fixed interval, like a slow
+ * broadcast or a GC pause would. Compositor fades should keep running smoothly meanwhile.
+ * Both fade paths log the alpha steps and frame gaps of each fade as drawn (the compositor
+ * and VideoLayer tags), the window frame stats the rest. Debug builds only, started by
+ * StallInjector.
+ */
+public class MainThreadStaller {
+
+    private static final String TAG = "MainThreadStaller";
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final long stallMillis;
+    private final long intervalMillis;
+    private int stalls = 0;
+
+    private final Runnable stall = new Runnable() {
+        @Override
+        public void run() {
+            SystemClock.sleep(stallMillis);
+            stalls++;
+            Log.d(TAG, "Main thread stalled " + stallMillis + "ms (" + stalls + " stalls)");
+            handler.postDelayed(this, intervalMillis);
+        }
+    };
+
+    public MainThreadStaller(long stallMillis, long intervalMillis) {
+        this.stallMillis = stallMillis;
+        this.intervalMillis = intervalMillis;
+    }
+
+    public void start() {
+        handler.removeCallbacks(stall);
+        handler.postDelayed(stall, intervalMillis);
+    }
+
+    public void stop() {
+        handler.removeCallbacks(stall);
+    }
+}
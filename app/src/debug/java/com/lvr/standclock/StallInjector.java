@@ -0,0 +1,96 @@
+package com.lvr.standclock;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.Log;
+
+/**
+ * Debug builds only: runs a MainThreadStaller while MainActivity is resumed, when it was
+ * launched with the inject_main_thread_stalls extra:
+ * adb shell am start -n com.lvr.standclock/.MainActivity --ez inject_main_thread_stalls true
+ * A provider because it is created at startup without any hook in the main source set.
+ */
+public class StallInjector extends ContentProvider {
+
+    private static final String TAG = "StallInjector";
+
+    static final String EXTRA_INJECT_STALLS = "inject_main_thread_stalls";
+    private static final long STALL_MILLIS = 250;
+    private static final long STALL_INTERVAL = 1000;
+
+    private final MainThreadStaller staller = new MainThreadStaller(STALL_MILLIS, STALL_INTERVAL);
+
+    @Override
+    public boolean onCreate() {
+        Application application = (Application) getContext().getApplicationContext();
+        application.registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityResumed(Activity activity) {
+                if (activity instanceof MainActivity
+                        && activity.getIntent().getBooleanExtra(EXTRA_INJECT_STALLS, false)) {
+                    Log.d(TAG, "Stalling the main thread " + STALL_MILLIS + "ms every " + STALL_INTERVAL + "ms");
+                    staller.start();
+                }
+            }
+
+            @Override
+            public void onActivityPaused(Activity activity) {
+                if (activity instanceof MainActivity) {
+                    staller.stop();
+                }
+            }
+
+            @Override
+            public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            }
+
+            @Override
+            public void onActivityStarted(Activity activity) {
+            }
+
+            @Override
+            public void onActivityStopped(Activity activity) {
+            }
+
+            @Override
+            public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+            }
+
+            @Override
+            public void onActivityDestroyed(Activity activity) {
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
+                        String sortOrder) {
+        return null;
+    }
+
+    @Override
+    public String getType(Uri uri) {
+        return null;
+    }
+
+    @Override
+    public Uri insert(Uri uri, ContentValues values) {
+        return null;
+    }
+
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs) {
+        return 0;
+    }
+
+    @Override
+    public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        return 0;
+    }
+}
@@ -0,0 +1,40 @@
+package com.lvr.standclock;
+
+/**
+ * Linear alpha fade computed from the clock. The thread drawing a frame gets the value for
+ * its frame time, however late the thread that started the fade runs. Pure Java, times in
+ * milliseconds.
+ */
+public final class AlphaRamp {
+
+    private final float from;
+    private final float to;
+    private final long startMillis;
+    private final long durationMillis;
+
+    public AlphaRamp(float from, float to, long startMillis, long durationMillis) {
+        this.from = from;
+        this.to = to;
+        this.startMillis = startMillis;
+        this.durationMillis = durationMillis;
+    }
+
+    public float valueAt(long uptimeMillis) {
+        if (durationMillis <= 0 || uptimeMillis >= startMillis + durationMillis) {
+            return to;
+        }
+        if (uptimeMillis <= startMillis) {
+            return from;
+        }
+        float progress = (uptimeMillis - startMillis) / (float) durationMillis;
+        return from + (to - from) * progress;
+    }
+
+    public boolean isFinishedAt(long uptimeMillis) {
+        return uptimeMillis >= startMillis + durationMillis;
+    }
+
+    public float getTarget() {
+        return to;
+    }
+}
@@ -0,0 +1,246 @@
+package com.lvr.standclock;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache for typefaces and bitmaps, loaded on a background thread.
+ * Callbacks are delivered on the main thread; views draw without the asset first
+ * and fill it in when the callback arrives.
+ */
+public class AssetLoader {
+
+    private static final String TAG = "AssetLoader";
+
+    public interface Callback<T> {
+        void onLoaded(T asset);
+    }
+
+    private static AssetLoader instance;
+
+    private final Context appContext;
+    private final Handler loaderHandler;
+    private final Handler mainHandler;
+
+    private final ConcurrentHashMap<String, Typeface> typefaces = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Bitmap> sprites = new ConcurrentHashMap<>();
+
+    // Accessed on the main thread only
+    private int pendingLoads = 0;
+    private final List<Runnable> readyCallbacks = new ArrayList<>();
+
+    public static synchronized AssetLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new AssetLoader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AssetLoader(Context appContext) {
+        this.appContext = appContext;
+
+        HandlerThread loaderThread = new HandlerThread("AssetLoader", Process.THREAD_PRIORITY_DEFAULT);
+        loaderThread.start();
+        loaderHandler = new Handler(loaderThread.getLooper());
+        mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * @return cached typeface or null if it hasn't been loaded yet
+     */
+    public Typeface getTypeface(String assetPath) {
+        return typefaces.get(assetPath);
+    }
+
+    public void loadTypeface(final String assetPath, final Callback<Typeface> callback) {
+        Typeface cached = typefaces.get(assetPath);
+        if (cached != null) {
+            callback.onLoaded(cached);
+            return;
+        }
+
+        pendingLoads++;
+        loaderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                long start = SystemClock.uptimeMillis();
+                Typeface typeface = typefaces.get(assetPath);
+                if (typeface == null) {
+                    typeface = Typeface.createFromAsset(appContext.getAssets(), assetPath);
+                    typefaces.put(assetPath, typeface);
+                }
+                Log.d(TAG, "Typeface " + assetPath + " loaded in " + (SystemClock.uptimeMillis() - start) + "ms");
+                deliver(callback, typeface);
+            }
+        });
+    }
+
+    /**
+     * Decode sprite frames downsampled to targetSize, the result array has the same order as resIds.
+     * Every distinct resource is decoded once, repeated ids share the same Bitmap instance.
+     *
+     * @param allowHardware false if the sprites are drawn into a software canvas, hardware
+     *                      bitmaps can only be drawn by the hardware renderer
+     */
+    public void loadSprites(final int[] resIds, final int targetSize, final boolean allowHardware,
+                            final Callback<Bitmap[]> callback) {
+        pendingLoads++;
+        loaderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                long start = SystemClock.uptimeMillis();
+                Bitmap[] result = new Bitmap[resIds.length];
+                for (int i = 0; i < resIds.length; i++) {
+                    result[i] = getSpriteBlocking(resIds[i], targetSize, allowHardware);
+                }
+                Log.d(TAG, resIds.length + " sprite frames loaded in " + (SystemClock.uptimeMillis() - start) + "ms");
+                deliver(callback, result);
+            }
+        });
+    }
+
+    /**
+     * Drop sprites from the cache and recycle them, on the loader thread so pending loads finish first.
+     * Callers must not draw the released bitmaps anymore.
+     */
+    public void releaseSprites(final int[] resIds, final int targetSize, final boolean allowHardware) {
+        loaderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                long freed = 0;
+                for (int resId : resIds) {
+                    Bitmap bitmap = sprites.remove(getSpriteKey(resId, targetSize, allowHardware));
+                    if (bitmap != null) {
+                        freed += getBitmapBytes(bitmap);
+                        bitmap.recycle();
+                    }
+                }
+                Log.d(TAG, "Released " + (freed / 1024) + "KB of sprites, resident now " + (getResidentSpriteBytes() / 1024) + "KB");
+            }
+        });
+    }
+
+    /**
+     * Total size of all cached sprites
+     */
+    public long getResidentSpriteBytes() {
+        long total = 0;
+        for (Bitmap bitmap : sprites.values()) {
+            total += getBitmapBytes(bitmap);
+        }
+        return total;
+    }
+
+    private static long getBitmapBytes(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getByteCount();
+    }
+
+    private static String getSpriteKey(int resId, int targetSize, boolean allowHardware) {
+        return resId + "@" + targetSize + (allowHardware ? "" : "/sw");
+    }
+
+    private Bitmap getSpriteBlocking(int resId, int targetSize, boolean allowHardware) {
+        String key = getSpriteKey(resId, targetSize, allowHardware);
+        Bitmap bitmap = sprites.get(key);
+        if (bitmap == null) {
+            bitmap = decodeSprite(resId, targetSize, getSpriteConfig(allowHardware));
+            if (bitmap != null) {
+                sprites.put(key, bitmap);
+            }
+        }
+        return bitmap;
+    }
+
+    private Bitmap decodeSprite(int resId, int targetSize, Bitmap.Config config) {
+        Resources resources = appContext.getResources();
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        options.inScaled = false;
+        BitmapFactory.decodeResource(resources, resId, options);
+        int sourceSize = Math.max(options.outWidth, options.outHeight);
+
+        // Power of two subsampling happens while decoding and keeps the decode buffer small
+        int sampleSize = 1;
+        while (sourceSize / (sampleSize * 2) >= targetSize) {
+            sampleSize *= 2;
+        }
+        int sampledSize = sourceSize / sampleSize;
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = config;
+
+        // Scale the rest of the way through the densities, instead of the default
+        // drawable bucket -> screen density upscaling
+        if (sampledSize > targetSize) {
+            options.inScaled = true;
+            options.inDensity = sampledSize;
+            options.inTargetDensity = targetSize;
+        } else {
+            options.inScaled = false;
+        }
+
+        return BitmapFactory.decodeResource(resources, resId, options);
+    }
+
+    /**
+     * Hardware bitmaps live in GPU memory only, older devices get regular ARGB_8888
+     */
+    private static Bitmap.Config getSpriteConfig(boolean allowHardware) {
+        if (allowHardware && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            return Bitmap.Config.HARDWARE;
+        }
+        return Bitmap.Config.ARGB_8888;
+    }
+
+    private <T> void deliver(final Callback<T> callback, final T asset) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onLoaded(asset);
+
+                pendingLoads--;
+                if (pendingLoads == 0) {
+                    notifyReady();
+                }
+            }
+        });
+    }
+
+    /**
+     * Run the callback on the main thread once every requested asset has been delivered
+     */
+    public void whenReady(Runnable callback) {
+        if (pendingLoads == 0) {
+            callback.run();
+        } else {
+            readyCallbacks.add(callback);
+        }
+    }
+
+    private void notifyReady() {
+        List<Runnable> callbacks = new ArrayList<>(readyCallbacks);
+        readyCallbacks.clear();
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+    }
+}
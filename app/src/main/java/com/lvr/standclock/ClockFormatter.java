@@ -0,0 +1,102 @@
+package com.lvr.standclock;
+
+import java.util.TimeZone;
+
+/**
+ * Allocation-free time source for the clock face.
+ * Local time is derived from the cached time zone offset and written into a reused char buffer,
+ * so update() can run on every frame without producing garbage.
+ */
+public class ClockFormatter {
+
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    // 1970-01-01 was a Thursday
+    private static final int EPOCH_DAY_OF_WEEK_SHIFT = 4;
+
+    private static final String[] PERCENT_TEXT = new String[101];
+
+    static {
+        for (int i = 0; i < PERCENT_TEXT.length; i++) {
+            PERCENT_TEXT[i] = i + "%";
+        }
+    }
+
+    private TimeZone timeZone = TimeZone.getDefault();
+
+    // "HH:MM" with a leading space instead of a zero for hours
+    private final char[] timeChars = new char[5];
+
+    private int hours, minutes, seconds;
+    private int dayOfWeek;
+    private long epochDay;
+
+    public void setTimeZone(TimeZone timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    public void update(long nowMillis) {
+        long local = nowMillis + timeZone.getOffset(nowMillis);
+
+        epochDay = floorDiv(local, DAY);
+        long millisOfDay = local - epochDay * DAY;
+
+        hours = (int) (millisOfDay / HOUR);
+        minutes = (int) (millisOfDay % HOUR / MINUTE);
+        seconds = (int) (millisOfDay % MINUTE / SECOND);
+
+        // Same numbering as Calendar.SUNDAY (1) .. Calendar.SATURDAY (7)
+        dayOfWeek = (int) ((epochDay + EPOCH_DAY_OF_WEEK_SHIFT) % 7 + 7) % 7 + 1;
+
+        timeChars[0] = hours <= 9 ? ' ' : (char) ('0' + hours / 10);
+        timeChars[1] = (char) ('0' + hours % 10);
+        timeChars[2] = ':';
+        timeChars[3] = (char) ('0' + minutes / 10);
+        timeChars[4] = (char) ('0' + minutes % 10);
+    }
+
+    public char[] getTimeChars() {
+        return timeChars;
+    }
+
+    public int getHours() {
+        return hours;
+    }
+
+    public int getMinutes() {
+        return minutes;
+    }
+
+    public int getSeconds() {
+        return seconds;
+    }
+
+    public int getDayOfWeek() {
+        return dayOfWeek;
+    }
+
+    public long getEpochDay() {
+        return epochDay;
+    }
+
+    /**
+     * "0%".."100%" from a precomputed table, other values fall back to concatenation
+     */
+    public static String percentText(int level) {
+        if (level >= 0 && level < PERCENT_TEXT.length) {
+            return PERCENT_TEXT[level];
+        }
+        return level + "%";
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        if ((x % y != 0) && ((x < 0) != (y < 0))) {
+            q--;
+        }
+        return q;
+    }
+}
@@ -1,18 +1,22 @@
 package com.lvr.standclock;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextPaint;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.View;
 
 import java.util.Calendar;
-import java.util.Locale;
+import java.util.TimeZone;
 
 public class ClockView extends View implements IDisplayMode {
 
@@ -26,6 +30,56 @@ public class ClockView extends View implements IDisplayMode {
 
     private int batteryLevel;
 
+    private final ClockFormatter clockFormatter = new ClockFormatter();
+
+    // Glyph atlas mode: digits are rasterized once per size/CalendarMode and blitted on every redraw
+    private static final String FONT_PATH = "fonts/segments.ttf";
+    private static final String TIME_TEMPLATE = "88:88";
+    private static final float STROKE_WIDTH = 10;
+    private boolean glyphAtlasEnabled = true;
+    private final GlyphAtlas glyphAtlas = new GlyphAtlas();
+    private int atlasWidth, atlasHeight;
+    private CalendarMode atlasCalendarMode;
+    private Typeface atlasTypeface;
+
+    // Text size search is memoized per container size, typeface and template
+    private final TextFitSolver fontFitSolver = new TextFitSolver(new TextFitSolver.Measurer() {
+        @Override
+        public boolean fits(float textSize, String template, int width, int height) {
+            measureTextBounds(textPaintTime, textSize, template, bounds);
+            return bounds.width() <= width && bounds.height() <= height;
+        }
+    });
+
+    // Every zone is cached separately and redrawn only on its own cadence
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long DAY = 24 * 60 * MINUTE;
+    private final TimeArea timeArea = new TimeArea();
+    private final DateArea dateArea = new DateArea();
+    private final BatteryArea batteryArea = new BatteryArea();
+    private final SecondsArea secondsArea = new SecondsArea();
+    private final OverlayZone[] zones = {timeArea, dateArea, batteryArea, secondsArea};
+
+    private WallClockTicker secondTicker;
+    private WallClockTicker minuteTicker;
+    private WallClockTicker dayTicker;
+    private long drawnMinute = -1;
+    private final BroadcastReceiver timeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            String action = intent.getAction();
+            if (Intent.ACTION_TIME_CHANGED.equals(action) || Intent.ACTION_TIMEZONE_CHANGED.equals(action)) {
+                clockFormatter.setTimeZone(TimeZone.getDefault());
+                secondTicker.resync();
+                minuteTicker.resync();
+                dayTicker.resync();
+                invalidateZones(OverlayZone.Cadence.DAY);
+            }
+            invalidateIfMinuteChanged();
+        }
+    };
+
     public ClockView(Context context) {
         super(context);
         init(context);
@@ -45,15 +99,138 @@ public class ClockView extends View implements IDisplayMode {
         // Make this view transparent so video shows through
         setBackgroundColor(Color.TRANSPARENT);
 
-        // Load the digital font
-        custom_font = Typeface.createFromAsset(context.getApplicationContext().getAssets(), "fonts/segments.ttf");
+        // Load the digital font in background, the time is drawn once it arrives
+        AssetLoader.getInstance(context).loadTypeface(FONT_PATH, new AssetLoader.Callback<Typeface>() {
+            @Override
+            public void onLoaded(Typeface typeface) {
+                custom_font = typeface;
+                relayoutZones();
+            }
+        });
+
+        Handler handler = new Handler(Looper.getMainLooper());
+        secondTicker = new WallClockTicker(handler, SECOND, new Runnable() {
+            @Override
+            public void run() {
+                invalidateZones(OverlayZone.Cadence.SECOND);
+            }
+        });
+        minuteTicker = new WallClockTicker(handler, MINUTE, new Runnable() {
+            @Override
+            public void run() {
+                invalidateIfMinuteChanged();
+            }
+        });
+        dayTicker = new WallClockTicker(handler, DAY, new Runnable() {
+            @Override
+            public void run() {
+                invalidateZones(OverlayZone.Cadence.DAY);
+            }
+        });
+
+        // Seconds are optional, they cost a redraw every second
+        secondsArea.setVisible(false);
     }
 
     public void setBatteryLevel(int level) {
+        if (this.batteryLevel == level) {
+            return;
+        }
         this.batteryLevel = level;
+        invalidateZones(OverlayZone.Cadence.BATTERY);
+    }
+
+    public void setSecondsVisible(boolean visible) {
+        secondsArea.setVisible(visible);
+        if (visible && getWindowToken() != null) {
+            secondTicker.start();
+        } else {
+            secondTicker.stop();
+        }
+        invalidate();
+    }
+
+    private void invalidateIfMinuteChanged() {
+        if (minuteTicker.currentPeriod() != drawnMinute) {
+            invalidateZones(OverlayZone.Cadence.MINUTE);
+        }
+    }
+
+    /**
+     * Mark all zones with the given cadence for re-rendering and invalidate only their area
+     */
+    private void invalidateZones(OverlayZone.Cadence cadence) {
+        for (OverlayZone zone : zones) {
+            if (zone.cadence == cadence && zone.isVisible()) {
+                zone.markDirty();
+                invalidate(zone.bounds);
+            }
+        }
+    }
+
+    private void invalidateAllZones() {
+        for (OverlayZone zone : zones) {
+            zone.markDirty();
+        }
         invalidate();
     }
 
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        relayoutZones();
+    }
+
+    private void relayoutZones() {
+        for (OverlayZone zone : zones) {
+            zone.layout(getWidth(), getHeight());
+        }
+        invalidateAllZones();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+
+        // TIME_TICK can only be received by a dynamically registered receiver
+        IntentFilter filter = new IntentFilter(Intent.ACTION_TIME_TICK);
+        filter.addAction(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        getContext().registerReceiver(timeReceiver, filter);
+
+        clockFormatter.setTimeZone(TimeZone.getDefault());
+        secondTicker.resync();
+        minuteTicker.resync();
+        dayTicker.resync();
+        if (secondsArea.isVisible()) {
+            secondTicker.start();
+        }
+        minuteTicker.start();
+        dayTicker.start();
+        invalidateAllZones();
+    }
+
+    public void setGlyphAtlasEnabled(boolean enabled) {
+        this.glyphAtlasEnabled = enabled;
+        if (!enabled) {
+            glyphAtlas.recycle();
+        }
+        invalidateAllZones();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        secondTicker.stop();
+        minuteTicker.stop();
+        dayTicker.stop();
+        getContext().unregisterReceiver(timeReceiver);
+        glyphAtlas.recycle();
+        for (OverlayZone zone : zones) {
+            zone.releaseCache();
+        }
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
@@ -61,119 +238,224 @@ public class ClockView extends View implements IDisplayMode {
         // Clear canvas with transparency
         canvas.drawColor(Color.TRANSPARENT);
 
-        // Anti aliasing
-        paint.setFlags(Paint.ANTI_ALIAS_FLAG);
-
         // Get date & time
-        int[] date_time = getDateTime();
-        String day_of_week = getDayOfWeek(date_time[3]);
-        Log.d("TIME", Calendar.getInstance().getTime().toString());
+        clockFormatter.update(System.currentTimeMillis());
 
-        int frontColor = isDay ? Color.BLACK : Color.WHITE;
+        // Zones replay their cached content unless they were marked dirty
+        for (OverlayZone zone : zones) {
+            zone.draw(canvas);
+        }
+    }
 
-        // Get screen size & set widths, heights, others
-        int x = getWidth();
-        int y = getHeight();
-        int center_y = y / 2;
+    private int getFrontColor() {
+        return isDay ? Color.BLACK : Color.WHITE;
+    }
 
-        // Show time
+    private void setupTimePaint(int frontColor) {
         textPaintTime.setTypeface(custom_font);
         textPaintTime.setColor(frontColor);
         textPaintTime.setStyle(Paint.Style.FILL);
+        textPaintTime.setAntiAlias(true);
+    }
 
+    private void setupInfoPaint(int height) {
+        textPaintInfo.setTextSize(height / 16F);
+        textPaintInfo.setColor(getFrontColor());
+        textPaintInfo.setAntiAlias(true);
+    }
 
+    private float getInfoBaseline(int height) {
+        return height - (height / 16F);
+    }
 
-        String[] time_str = addLeadingZeros(date_time[4], date_time[5], date_time[6]);
-        String middle = String.valueOf(time_str[0] + ":" + time_str[1]);
-        container.set(0, 0, x, y);
-        float fontSize = calculateFontSize(textPaintTime, bounds, container, middle);
-        textPaintTimeStroke.setTextSize(fontSize * 0.98F);
+    /**
+     * Bottom info line shared by the battery, seconds and date zones
+     */
+    private void layoutInfoZone(Rect zoneBounds, int left, int right, int height) {
+        setupInfoPaint(height);
+        Paint.FontMetricsInt metrics = textPaintInfo.getFontMetricsInt();
+        int baseline = (int) getInfoBaseline(height);
+        zoneBounds.set(left, baseline + metrics.top, right, Math.min(height, baseline + metrics.bottom));
+    }
 
-        int x_pos = (x - bounds.width()) / 2;
-        int y_pos = center_y + bounds.height() / 2;
+    private class TimeArea extends OverlayZone {
 
-        if (this.calendarMode == CalendarMode.Christmas) {
-            // Setup stroke (outline)
-            textPaintTimeStroke.setTypeface(custom_font);
-            textPaintTimeStroke.setColor(this.isDay ? Color.WHITE : Color.BLACK); // Opposite color for contrast
-            textPaintTimeStroke.setStyle(Paint.Style.STROKE);
-            textPaintTimeStroke.setStrokeWidth(10); // Adjust thickness as needed
-            textPaintTimeStroke.setAntiAlias(true);
-            textPaintTime.setTextSize(fontSize * 0.98F);
-            canvas.drawText(middle, x_pos, y_pos, textPaintTimeStroke);
+        TimeArea() {
+            super(Cadence.MINUTE);
         }
 
-        // Draw outline first, then fill on top
-        canvas.drawText(middle, x_pos, y_pos, textPaintTime);
+        @Override
+        public void layout(int width, int height) {
+            setupTimePaint(getFrontColor());
+            container.set(0, 0, width, height);
+            calculateFontSize(textPaintTime, ClockView.this.bounds, container, TIME_TEMPLATE);
+
+            // Band around the vertically centered time, with room for the Christmas outline
+            int margin = (int) STROKE_WIDTH * 2;
+            int textHeight = ClockView.this.bounds.height();
+            bounds.set(0, height / 2 - textHeight / 2 - margin, width, height / 2 + textHeight / 2 + margin);
+        }
+
+        @Override
+        protected void render(Canvas canvas) {
+            drawnMinute = minuteTicker.currentPeriod();
+            if (custom_font == null) {
+                // Font is still loading
+                return;
+            }
+
+            int frontColor = getFrontColor();
+            setupTimePaint(frontColor);
+            char[] timeChars = clockFormatter.getTimeChars();
+
+            if (glyphAtlasEnabled) {
+                drawTimeFromAtlas(canvas, timeChars, frontColor);
+            } else {
+                drawTimeText(canvas, timeChars, frontColor);
+            }
+        }
+    }
 
+    private class DateArea extends OverlayZone {
 
-        if (batteryLevel > 0) {
-            textPaintInfo.setTextSize(y / 16F);
-            textPaintInfo.setColor(frontColor);
-            canvas.drawText(String.format("%d%%", batteryLevel), 0, y - (y / 16F), textPaintInfo);
+        DateArea() {
+            super(Cadence.DAY);
         }
 
-        // Redraw every second
-        postInvalidateDelayed(1000);
+        @Override
+        public void layout(int width, int height) {
+            layoutInfoZone(bounds, width / 2, width, height);
+        }
+
+        @Override
+        protected void render(Canvas canvas) {
+            // Runs once a day, so a Calendar here is fine
+            Calendar calendar = Calendar.getInstance();
+            String text = getDayOfWeek(calendar.get(Calendar.DAY_OF_WEEK)) + " " + calendar.get(Calendar.DAY_OF_MONTH);
+
+            setupInfoPaint(getHeight());
+            float textWidth = textPaintInfo.measureText(text);
+            canvas.drawText(text, getWidth() - textWidth, getInfoBaseline(getHeight()), textPaintInfo);
+        }
     }
 
-    private float calculateFontSize(Paint textPaint, Rect textBounds, Rect textContainer, String text) {
-        int stage = 1;
-        float textSize = 0;
+    private class BatteryArea extends OverlayZone {
+
+        BatteryArea() {
+            super(Cadence.BATTERY);
+        }
 
-        while (stage < 3) {
-            if (stage == 1) textSize += 10;
-            else if (stage == 2) textSize -= 1;
+        @Override
+        public void layout(int width, int height) {
+            layoutInfoZone(bounds, 0, width / 4, height);
+        }
+
+        @Override
+        protected void render(Canvas canvas) {
+            if (batteryLevel > 0) {
+                setupInfoPaint(getHeight());
+                canvas.drawText(ClockFormatter.percentText(batteryLevel), 0, getInfoBaseline(getHeight()), textPaintInfo);
+            }
+        }
+    }
 
-            textPaint.setTextSize(textSize);
-            textPaint.getTextBounds(text, 0, text.length(), textBounds);
-            float width = textPaint.measureText(text);
-            textBounds.right = (int) (textBounds.left + width);
+    private class SecondsArea extends OverlayZone {
 
-            textBounds.offsetTo(textContainer.left, textContainer.top);
+        private final char[] secondsChars = new char[2];
 
-            boolean fits = textContainer.contains(textBounds);
-            if (stage == 1 && !fits) stage++;
-            else if (stage == 2 && fits) stage++;
+        SecondsArea() {
+            super(Cadence.SECOND);
         }
 
-        return textSize;
+        @Override
+        public void layout(int width, int height) {
+            layoutInfoZone(bounds, width / 4, width / 2, height);
+        }
+
+        @Override
+        protected void render(Canvas canvas) {
+            int seconds = clockFormatter.getSeconds();
+            secondsChars[0] = (char) ('0' + seconds / 10);
+            secondsChars[1] = (char) ('0' + seconds % 10);
+
+            setupInfoPaint(getHeight());
+            canvas.drawText(secondsChars, 0, secondsChars.length, bounds.left, getInfoBaseline(getHeight()), textPaintInfo);
+        }
     }
 
-    private String[] addLeadingZeros(int hours, int minutes, int seconds) {
-        String hours_str, minutes_str, seconds_str;
+    private void drawTimeFromAtlas(Canvas canvas, char[] timeChars, int frontColor) {
+        int x = getWidth();
+        int y = getHeight();
 
-        if (hours <= 9)
-            hours_str = " " + hours;
-        else
-            hours_str = String.valueOf(hours);
+        // Rebuild the atlas only when the view size, the font or the CalendarMode changes
+        if (!glyphAtlas.isReady() || atlasWidth != x || atlasHeight != y
+                || atlasCalendarMode != calendarMode || atlasTypeface != custom_font) {
+            container.set(0, 0, x, y);
+            float fontSize = calculateFontSize(textPaintTime, bounds, container, TIME_TEMPLATE);
+            if (this.calendarMode == CalendarMode.Christmas) {
+                glyphAtlas.build(custom_font, fontSize * 0.98F, STROKE_WIDTH);
+            } else {
+                glyphAtlas.build(custom_font, fontSize, 0);
+            }
+            atlasWidth = x;
+            atlasHeight = y;
+            atlasCalendarMode = calendarMode;
+            atlasTypeface = custom_font;
+        }
 
-        if (minutes <= 9)
-            minutes_str = "0" + minutes;
-        else
-            minutes_str = String.valueOf(minutes);
+        float width = glyphAtlas.measure(timeChars, 0, timeChars.length);
 
-        if (seconds <= 9)
-            seconds_str = "0" + seconds;
-        else
-            seconds_str = String.valueOf(seconds);
+        float x_pos = (x - width) / 2;
+        float y_pos = y / 2 + glyphAtlas.getTextHeight() / 2F;
 
-        String[] values = {hours_str, minutes_str, seconds_str};
-        return values;
+        // Opposite color for the Christmas outline, the atlas draws the outline first
+        glyphAtlas.draw(canvas, timeChars, 0, timeChars.length, x_pos, y_pos,
+                frontColor, this.isDay ? Color.WHITE : Color.BLACK);
     }
 
-    private int[] getDateTime() {
-        Calendar calendar = Calendar.getInstance(Locale.getDefault());
-        int year = calendar.get(Calendar.YEAR);
-        int month = calendar.get(Calendar.MONTH);
-        int day = calendar.get(Calendar.DAY_OF_MONTH);
-        int day_of_week = calendar.get(Calendar.DAY_OF_WEEK);
-        int ss = calendar.get(Calendar.SECOND);
-        int mm = calendar.get(Calendar.MINUTE);
-        int hh = calendar.get(Calendar.HOUR_OF_DAY);
+    private void drawTimeText(Canvas canvas, char[] timeChars, int frontColor) {
+        int x = getWidth();
+        int y = getHeight();
+        int center_y = y / 2;
+
+        container.set(0, 0, x, y);
+        float fontSize = calculateFontSize(textPaintTime, bounds, container, TIME_TEMPLATE);
+        textPaintTimeStroke.setTextSize(fontSize * 0.98F);
+
+        // Center the actual text, not the template
+        textPaintTime.getTextBounds(timeChars, 0, timeChars.length, bounds);
+        bounds.right = (int) (bounds.left + textPaintTime.measureText(timeChars, 0, timeChars.length));
+
+        int x_pos = (x - bounds.width()) / 2;
+        int y_pos = center_y + bounds.height() / 2;
 
-        int[] values = {year, month, day, day_of_week, hh, mm, ss};
-        return values;
+        if (this.calendarMode == CalendarMode.Christmas) {
+            // Setup stroke (outline)
+            textPaintTimeStroke.setTypeface(custom_font);
+            textPaintTimeStroke.setColor(this.isDay ? Color.WHITE : Color.BLACK); // Opposite color for contrast
+            textPaintTimeStroke.setStyle(Paint.Style.STROKE);
+            textPaintTimeStroke.setStrokeWidth(10); // Adjust thickness as needed
+            textPaintTimeStroke.setAntiAlias(true);
+            textPaintTime.setTextSize(fontSize * 0.98F);
+            canvas.drawText(timeChars, 0, timeChars.length, x_pos, y_pos, textPaintTimeStroke);
+        }
+
+        // Draw outline first, then fill on top
+        canvas.drawText(timeChars, 0, timeChars.length, x_pos, y_pos, textPaintTime);
+    }
+
+    private float calculateFontSize(Paint textPaint, Rect textBounds, Rect textContainer, String text) {
+        float textSize = fontFitSolver.solve(textContainer.width(), textContainer.height(), textPaint.getTypeface(), text);
+        measureTextBounds(textPaint, textSize, text, textBounds);
+        return textSize;
+    }
+
+    private static void measureTextBounds(Paint textPaint, float textSize, String text, Rect textBounds) {
+        textPaint.setTextSize(textSize);
+        textPaint.getTextBounds(text, 0, text.length(), textBounds);
+        float width = textPaint.measureText(text);
+        textBounds.right = (int) (textBounds.left + width);
+        textBounds.offsetTo(0, 0);
     }
 
     private String getDayOfWeek(int day_of_week) {
@@ -200,9 +482,12 @@ public class ClockView extends View implements IDisplayMode {
     protected IDisplayMode.CalendarMode calendarMode;
 
     public void SetDisplayMode(boolean isDay, CalendarMode calendarMode) {
+        if (this.isDay == isDay && this.calendarMode == calendarMode) {
+            return;
+        }
         this.isDay = isDay;
         this.calendarMode = calendarMode;
-        invalidate();
+        invalidateAllZones();
     }
 
 }
\ No newline at end of file
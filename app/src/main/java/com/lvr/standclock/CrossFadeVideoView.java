@@ -1,55 +1,67 @@
 package com.lvr.standclock;
 
-import android.animation.ValueAnimator;
 import android.content.Context;
 import android.graphics.SurfaceTexture;
-import android.media.MediaPlayer;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.Surface;
 import android.view.TextureView;
+import android.view.ViewTreeObserver;
 import android.view.animation.LinearInterpolator;
 import android.widget.FrameLayout;
 
 import java.io.File;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
 
     private static final String TAG = "VideoView";
     private static final int FADE_DURATION = 1000;
-    private static final float VIDEO_BRIGHTNESS_DAY = 1.0f;
-    private static final float VIDEO_BRIGHTNESS_NIGHT = 0.8f;
 
-    // Start preparing next video this early (relative to ACTUAL video end)
+    // Start preparing next video this early (relative to ACTUAL video end),
+    // until prepare times of the video or its codec/resolution class have been measured
     private static final long PREPARE_BEFORE_END = 3000; // 3 seconds before video ends
 
-    // Start next video playback this early
+    // Start next video playback this early, at least
     private static final long START_ADVANCE_TIME = 300;
 
+    private static final String LEAD_TIMES_FILE = "lead_times.bin";
+
     private VideoLayer layer1;
     private VideoLayer layer2;
     private VideoLayer currentLayer;
     private VideoLayer nextLayer;
-
-    private List<String> allVideoPaths = new ArrayList<>();
-    private List<String> dayVideos = new ArrayList<>();
-    private List<String> nightVideos = new ArrayList<>();
-    private int currentVideoIndex = -1;
-    private Random random = new Random();
-    private ValueAnimator crossFadeAnimator;
-
-    private float currentVideoBrightness = VIDEO_BRIGHTNESS_DAY;
-    private float nextVideoBrightness = VIDEO_BRIGHTNESS_DAY;
+    // Owns the players of both layers
+    private final PlaybackActor playbackActor;
+
+    // Day/night lists and the shuffle bags, picked from the main and the background thread
+    private final PlaylistScheduler scheduler = new PlaylistScheduler(System.nanoTime());
+    // Warms up the file of the video after next while the current one plays
+    private final VideoPrefetcher prefetcher = new VideoPrefetcher();
+    // Measured prepare and start latencies, the transition is planned with them
+    private final LeadTimeEstimator leadTimes = new LeadTimeEstimator();
+    private final File leadTimesFile;
+    // Known metadata of the videos, null until set
+    private volatile VideoMetadataIndex metadataIndex;
+    // End of the running crossfade, in compositor mode the fade itself runs off the main thread
+    private Runnable pendingFadeEnd = null;
+
+    private float currentVideoBrightness = VideoCatalog.VIDEO_BRIGHTNESS_DAY;
+    private float nextVideoBrightness = VideoCatalog.VIDEO_BRIGHTNESS_DAY;
     private String currentVideoPath = null;
     private String nextVideoPath = null;
 
     private boolean nextVideoReady = false;
+    // From preparing the next video until the crossfade finished, read by background jobs
+    private volatile boolean transitionActive = false;
     private boolean nextVideoStarted = false;
+    // Start requested, waiting for its first frame
+    private boolean nextVideoStarting = false;
+    // The current video nears its end, crossfade as soon as the next one shows a frame
+    private boolean crossFadeWaiting = false;
     private Runnable scheduledCrossFade = null;
     private Runnable scheduledStart = null;
 
@@ -60,20 +72,48 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
     private Handler backgroundHandler;
     private Handler mainHandler;
 
+    // Both videos blended by one GL view instead of two TextureView layers, null if not used
+    private VideoCompositorView compositor;
+
     // Color background mode (when videos are not displayed)
     private boolean colorBackgroundMode = false;
     private int backgroundColor = android.graphics.Color.WHITE;
 
     public CrossFadeVideoView(Context context) {
-        super(context);
+        this(context, false);
+    }
 
-        setLayerType(LAYER_TYPE_HARDWARE, null);
+    /**
+     * @param glCompositor decode both videos into one GL compositor view, which blends them in
+     *                     a single pass, instead of stacking two hardware layers
+     */
+    public CrossFadeVideoView(Context context, boolean glCompositor) {
+        this(context, glCompositor, false);
+    }
 
-        layer1 = new VideoLayer(context);
-        layer2 = new VideoLayer(context);
+    /**
+     * @param mediaCodec decode with MediaCodec instead of MediaPlayer, prepared videos show their
+     *                   first frame and start without decoder startup latency
+     */
+    public CrossFadeVideoView(Context context, boolean glCompositor, boolean mediaCodec) {
+        super(context);
 
-        layer1.setLayerType(LAYER_TYPE_HARDWARE, null);
-        layer2.setLayerType(LAYER_TYPE_HARDWARE, null);
+        playbackActor = new PlaybackActor(2, mediaCodec);
+        layer1 = new VideoLayer(context, playbackActor, 0);
+        layer2 = new VideoLayer(context, playbackActor, 1);
+
+        if (glCompositor) {
+            compositor = new VideoCompositorView(context);
+            addView(compositor, new FrameLayout.LayoutParams(
+                    FrameLayout.LayoutParams.MATCH_PARENT,
+                    FrameLayout.LayoutParams.MATCH_PARENT));
+            layer1.attachCompositor(compositor, 0);
+            layer2.attachCompositor(compositor, 1);
+        } else {
+            setLayerType(LAYER_TYPE_HARDWARE, null);
+            layer1.setLayerType(LAYER_TYPE_HARDWARE, null);
+            layer2.setLayerType(LAYER_TYPE_HARDWARE, null);
+        }
 
         addView(layer1, new FrameLayout.LayoutParams(
                 FrameLayout.LayoutParams.MATCH_PARENT,
@@ -92,28 +132,91 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
         backgroundHandler = new Handler(backgroundThread.getLooper());
         mainHandler = new Handler(Looper.getMainLooper());
 
+        leadTimesFile = new File(context.getFilesDir(), LEAD_TIMES_FILE);
+        backgroundHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                leadTimes.load(leadTimesFile);
+            }
+        });
+
         Log.d(TAG, "CrossFadeVideoView created");
     }
 
-    public void setVideoPlaylist(List<String> videoPaths) {
-        this.allVideoPaths = new ArrayList<>(videoPaths);
+    public void setMetadataIndex(VideoMetadataIndex metadataIndex) {
+        this.metadataIndex = metadataIndex;
+    }
 
-        dayVideos.clear();
-        nightVideos.clear();
+    /**
+     * Indexed metadata of the file, null if it was changed since it was indexed.
+     * Stats the file, only for the background thread.
+     */
+    private VideoMetadata getMetadata(String videoPath, File file) {
+        VideoMetadataIndex index = metadataIndex;
+        return index != null ? index.get(videoPath, file.length(), file.lastModified()) : null;
+    }
 
-        for (String path : videoPaths) {
-            String filename = new File(path).getName().toLowerCase();
+    /**
+     * Indexed metadata without checking the file, for the main thread. Stale entries are
+     * accepted here: they only feed estimates (lead time class, read ahead length, the
+     * brightness of the video already playing) until the indexer has refreshed them.
+     */
+    private VideoMetadata getIndexedMetadata(String videoPath) {
+        VideoMetadataIndex index = metadataIndex;
+        return index != null && videoPath != null ? index.get(videoPath) : null;
+    }
 
-            if (filename.startsWith("d_")) {
-                dayVideos.add(path);
-            }
+    private String getVideoClass(String videoPath) {
+        return LeadTimeEstimator.classOf(getIndexedMetadata(videoPath));
+    }
 
-            if (filename.startsWith("n_") || filename.startsWith("dn_")) {
-                nightVideos.add(path);
+    /**
+     * Time between starting a video and the crossfade to it, long enough for its first frames
+     */
+    private long getStartAdvance(String videoPath, String videoClass) {
+        return Math.max(START_ADVANCE_TIME, leadTimes.getLead(LeadTimeEstimator.START, videoPath,
+                videoClass, START_ADVANCE_TIME));
+    }
+
+    /**
+     * Delay from the start of a video until preparing the next one, planned for the likely next pick:
+     * it should be prepared just before the current video nears completion
+     */
+    private long getPrepareDelay(int duration) {
+        String upcoming = scheduler.peek(isDay);
+        long prepareLead = leadTimes.getLead(LeadTimeEstimator.PREPARE, upcoming, getVideoClass(upcoming),
+                PREPARE_BEFORE_END - VideoLayer.NEAR_COMPLETION_LEAD);
+        long nearCompletionLead = FADE_DURATION + getStartAdvance(upcoming, getVideoClass(upcoming));
+        return duration - nearCompletionLead - prepareLead;
+    }
+
+    private void saveLeadTimes() {
+        final List<String> catalogPaths = scheduler.getCatalog().getAllVideos();
+        backgroundHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    leadTimes.save(leadTimesFile, catalogPaths);
+                } catch (Exception e) {
+                    Log.e(TAG, "Error saving lead times: " + e.getMessage());
+                }
             }
+        });
+    }
+
+    private void prefetch(String videoPath) {
+        if (videoPath == null) {
+            return;
         }
+        VideoMetadata metadata = getIndexedMetadata(videoPath);
+        prefetcher.prefetch(videoPath, metadata != null ? metadata.getDurationMs() : 0);
+    }
 
-        Log.d(TAG, "Playlist set - Day: " + dayVideos.size() + ", Night: " + nightVideos.size());
+    public void setVideoPlaylist(List<String> videoPaths) {
+        VideoCatalog catalog = new VideoCatalog(videoPaths);
+        scheduler.setCatalog(catalog);
+
+        Log.d(TAG, "Playlist set - Day: " + catalog.getDayVideos().size() + ", Night: " + catalog.getNightVideos().size());
 
         // Check if we're in the video display period
         if (isInVideoPeriod()) {
@@ -138,6 +241,26 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
         }
     }
 
+    @Override
+    public void setBackgroundColor(int color) {
+        super.setBackgroundColor(color);
+        // The compositor surface covers the view background
+        if (compositor != null) {
+            compositor.setClearColor(color);
+        }
+    }
+
+    /**
+     * @return true while the next video is prepared or crossfaded in
+     */
+    public boolean isTransitionActive() {
+        return transitionActive;
+    }
+
+    public FrameStats getCompositorFrameStats() {
+        return compositor != null ? compositor.getFrameStats() : null;
+    }
+
     private void updateDayNightMode(boolean isDayTime) {
         Log.d(TAG, "Day/Night mode changed to: " + (isDayTime ? "DAY" : "NIGHT"));
         this.isDay = isDayTime;
@@ -152,8 +275,7 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
                 setBackgroundColor(android.graphics.Color.TRANSPARENT);
 
                 // Start playing videos if we have a playlist
-                if (!allVideoPaths.isEmpty()) {
-                    currentVideoIndex = -1;
+                if (!scheduler.getCatalog().getAllVideos().isEmpty()) {
                     postDelayed(new Runnable() {
                         @Override
                         public void run() {
@@ -184,6 +306,9 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
         // Stop any playing videos
         layer1.stop();
         layer2.stop();
+        transitionActive = false;
+        crossFadeWaiting = false;
+        nextVideoStarting = false;
 
         // Set layers to transparent
         layer1.setAlpha(0f);
@@ -203,43 +328,11 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
 
     }
 
-    protected float calculateVideoBrightness(String videoPath, String filename, boolean isDayTime) {
-        filename = filename.toLowerCase();
-
-        if (filename.contains("b_")) {
-            try {
-                int startIdx = filename.indexOf("b_") + 2;
-                int endIdx = startIdx + 2;
-                if (endIdx <= filename.length()) {
-                    String brightnessStr = filename.substring(startIdx, endIdx);
-                    int brightness = Integer.parseInt(brightnessStr);
-                    float result = brightness / 100.0f;
-                    return Math.max(0.0f, Math.min(1.0f, result));
-                }
-            } catch (Exception e) {
-                // ignore
-            }
-        }
-
-        if (filename.startsWith("n_")) {
-            return 1.0f;
-        } else if (filename.startsWith("d_")) {
-            return 1.0f;
-        } else if (filename.contains("dn_")) {
-            return 0.5f;
-        }
-
-        return isDayTime ? VIDEO_BRIGHTNESS_DAY : VIDEO_BRIGHTNESS_NIGHT;
-    }
-
-    private List<String> getCurrentPlaylist() {
-        List<String> playlist = isDay ? dayVideos : nightVideos;
-
-        if (playlist.isEmpty()) {
-            return allVideoPaths;
+    protected float calculateVideoBrightness(VideoMetadata metadata, String filename, boolean isDayTime) {
+        if (metadata != null) {
+            return metadata.getBrightness(isDayTime);
         }
-
-        return playlist;
+        return VideoCatalog.calculateBrightness(filename, isDayTime);
     }
 
     private void playNextVideo() {
@@ -249,20 +342,19 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
             return;
         }
 
-        List<String> playlist = getCurrentPlaylist();
+        final String videoPath = scheduler.next(isDay);
 
-        if (playlist == null || playlist.isEmpty()) {
+        if (videoPath == null) {
             Log.w(TAG, "Playlist is empty");
             return;
         }
 
-        currentVideoIndex = random.nextInt(playlist.size());
-
-        final String videoPath = playlist.get(currentVideoIndex);
         currentVideoPath = videoPath;
+        // Ready by the time the next video is prepared
+        prefetch(scheduler.peek(isDay));
 
         String filename = new File(videoPath).getName();
-        currentVideoBrightness = calculateVideoBrightness(videoPath, filename, isDay);
+        currentVideoBrightness = calculateVideoBrightness(getIndexedMetadata(videoPath), filename, isDay);
 
         Log.d(TAG, "Playing video: " + filename + " (brightness: " + currentVideoBrightness + ")");
 
@@ -279,7 +371,7 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
 
                 // NEW: Schedule preparation based on duration
                 // But crossfade will be triggered by onNearingCompletion
-                long delayUntilPreparation = duration - PREPARE_BEFORE_END;
+                long delayUntilPreparation = getPrepareDelay(duration);
                 if (delayUntilPreparation > 0) {
                     postDelayed(new Runnable() {
                         @Override
@@ -300,27 +392,16 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
 
             @Override
             public void onNearingCompletion() {
-                // NEW: Called FADE_DURATION before video actually ends
-                // This triggers the crossfade at the right time
+                // Called FADE_DURATION + start lead before the video ends, the crossfade
+                // follows the first frame of the next video
                 Log.d(TAG + "Timing", "Video nearing completion, starting crossfade");
-
-                if (nextVideoReady && !nextVideoStarted) {
-                    // Start next video if not already started
-                    startNextVideoAsync();
-                }
-
-                // Start crossfade
-                postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        beginCrossFade();
-                    }
-                }, START_ADVANCE_TIME);
+                beginCrossFade();
             }
         });
     }
 
     private void prepareNextVideoAsync() {
+        transitionActive = true;
         backgroundHandler.post(new Runnable() {
             @Override
             public void run() {
@@ -332,15 +413,12 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
     private void prepareNextVideoBackground() {
         Log.d(TAG + "Timing", "Starting preparing next video");
 
-        final List<String> playlist = getCurrentPlaylist();
+        final String videoPath = scheduler.next(isDay);
 
-        if (playlist.isEmpty()) {
+        if (videoPath == null) {
             return;
         }
 
-        int nextIndex = random.nextInt(playlist.size());
-        final String videoPath = playlist.get(nextIndex);
-
         final File file = new File(videoPath);
 
         if (!file.exists() || !file.canRead()) {
@@ -355,24 +433,49 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
         }
 
         final String filename = file.getName();
-        final float brightness = calculateVideoBrightness(videoPath, filename, isDay);
+        // Known before the decoder is opened if the video was indexed and hasn't changed since
+        VideoMetadata metadata = getMetadata(videoPath, file);
+        final float brightness = calculateVideoBrightness(metadata, filename, isDay);
+        final int knownDuration = metadata != null ? metadata.getDurationMs() : 0;
+        final String videoClass = LeadTimeEstimator.classOf(metadata);
+        final long startAdvance = getStartAdvance(videoPath, videoClass);
+        // The pick after this one, its file can be read ahead while this one plays
+        final String upcomingPath = scheduler.peek(isDay);
 
         mainHandler.post(new Runnable() {
             @Override
             public void run() {
                 nextVideoPath = videoPath;
                 nextVideoBrightness = brightness;
+                nextVideoDuration = knownDuration;
                 nextVideoReady = false;
                 nextVideoStarted = false;
+                nextVideoStarting = false;
+
+                // Near completion early enough to start this video and fade it in before the current one ends
+                currentLayer.setNearCompletionLead((int) (FADE_DURATION + startAdvance));
 
-                Log.d(TAG, "Pre-loading next video: " + filename + " (brightness: " + nextVideoBrightness + ")");
+                Log.d(TAG, "Pre-loading next video: " + filename + " (brightness: " + nextVideoBrightness
+                        + ", duration: " + (knownDuration > 0 ? knownDuration + "ms" : "unknown")
+                        + ", then: " + (upcomingPath != null ? new File(upcomingPath).getName() : "none") + ")");
             }
         });
 
-        nextLayer.loadVideoAsync(videoPath, backgroundHandler, new VideoLayer.VideoCallback() {
+        final boolean prefetched = prefetcher.onPrepareStarted(videoPath);
+        final long prepareStart = SystemClock.uptimeMillis();
+
+        nextLayer.loadVideoAsync(videoPath, new VideoLayer.VideoCallback() {
             @Override
             public void onPrepared(final int duration) {
-                Log.d(TAG + "Timing", "Next video loaded on background thread");
+                Log.d(TAG + "Timing", "Next video loaded on playback thread");
+                long prepareMillis = SystemClock.uptimeMillis() - prepareStart;
+                prefetcher.onPrepared(prefetched, prepareMillis);
+                leadTimes.record(LeadTimeEstimator.PREPARE, videoPath, videoClass, prepareMillis);
+                saveLeadTimes();
+                Log.d(TAG + "Timing", "Prepared in " + prepareMillis + "ms, next prepare lead "
+                        + leadTimes.getLead(LeadTimeEstimator.PREPARE, videoPath, videoClass, 0) + "ms");
+                // Nothing else reads from the card until the crossfade
+                prefetch(upcomingPath);
 
                 mainHandler.post(new Runnable() {
                     @Override
@@ -380,7 +483,10 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
                         nextVideoReady = true;
                         nextVideoDuration = duration;
 
-                        // Next video is ready, will be started when current video nears completion
+                        // Started when the current video nears completion, or now if that was already the case
+                        if (crossFadeWaiting) {
+                            startNextVideoAsync();
+                        }
                     }
                 });
             }
@@ -410,88 +516,64 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
     }
 
     private void startNextVideoAsync() {
-        if (!nextVideoReady || nextVideoStarted) {
+        if (!nextVideoReady || nextVideoStarted || nextVideoStarting) {
             return;
         }
+        nextVideoStarting = true;
 
         Log.d(TAG + "Timing", "Starting next video");
 
-        backgroundHandler.post(new Runnable() {
+        final String videoPath = nextVideoPath;
+        final VideoLayer starting = nextLayer;
+        starting.startFromBeginning(new VideoLayer.StartCallback() {
             @Override
-            public void run() {
-                try {
-                    nextLayer.seekTo(0);
-                    Thread.sleep(10);
-                    nextLayer.start();
+            public void onFirstFrame(long latency) {
+                if (starting != nextLayer || !nextVideoStarting) {
+                    return;
+                }
+                nextVideoStarting = false;
+                nextVideoStarted = true;
 
-                    Log.d(TAG + "Timing", "Video started");
+                // Measured to the first frame on screen, that is what the crossfade waits for
+                leadTimes.record(LeadTimeEstimator.START, videoPath, getVideoClass(videoPath), latency);
+                Log.d(TAG + "Timing", "Video started in " + latency + "ms");
 
-                    mainHandler.post(new Runnable() {
-                        @Override
-                        public void run() {
-                            nextVideoStarted = true;
-                        }
-                    });
-                } catch (Exception e) {
-                    Log.e(TAG, "Error starting next video: " + e.getMessage());
+                if (crossFadeWaiting) {
+                    performCrossFade();
                 }
             }
         });
     }
 
     private void beginCrossFade() {
-        if (!nextVideoReady) {
-            postDelayed(new Runnable() {
-                @Override
-                public void run() {
-                    beginCrossFade();
-                }
-            }, 50);
-            return;
-        }
-
-        if (!nextVideoStarted) {
-            startNextVideoAsync();
-            postDelayed(new Runnable() {
-                @Override
-                public void run() {
-                    performCrossFade();
-                }
-            }, 100);
+        if (nextVideoStarted) {
+            Log.d(TAG + "Timing", "Starting crossfade");
+            performCrossFade();
             return;
         }
 
-        Log.d(TAG + "Timing", "Starting crossfade");
-        performCrossFade();
+        // Continued by the prepared and first frame events of the next video
+        crossFadeWaiting = true;
+        startNextVideoAsync();
     }
 
     private void performCrossFade() {
-        if (crossFadeAnimator != null && crossFadeAnimator.isRunning()) {
-            crossFadeAnimator.cancel();
-        }
+        crossFadeWaiting = false;
+        finishPendingFade();
 
         final VideoLayer fadingOut = currentLayer;
         final VideoLayer fadingIn = nextLayer;
 
-        final float startBrightness = currentVideoBrightness;
         final float endBrightness = nextVideoBrightness;
 
-        crossFadeAnimator = ValueAnimator.ofFloat(0f, 1f);
-        crossFadeAnimator.setDuration(FADE_DURATION);
-        crossFadeAnimator.setInterpolator(new LinearInterpolator());
+        fadingOut.setAlpha(currentVideoBrightness);
+        fadingIn.setAlpha(0f);
+        fadingOut.fadeTo(0f, FADE_DURATION);
+        fadingIn.fadeTo(endBrightness, FADE_DURATION);
 
-        crossFadeAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+        runAfterFade(new Runnable() {
             @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                float progress = animation.getAnimatedFraction();
-                fadingOut.setAlpha(startBrightness * (1f - progress));
-                fadingIn.setAlpha(endBrightness * progress);
-            }
-        });
-
-        crossFadeAnimator.addListener(new android.animation.AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(android.animation.Animator animation) {
+            public void run() {
                 VideoLayer temp = currentLayer;
                 currentLayer = nextLayer;
                 nextLayer = temp;
@@ -501,6 +583,8 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
                 currentVideoDuration = nextVideoDuration;
                 nextVideoReady = false;
                 nextVideoStarted = false;
+                nextVideoStarting = false;
+                transitionActive = false;
 
                 Log.d(TAG + "Timing", "Stopped crossfade");
 
@@ -519,22 +603,12 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
                     @Override
                     public void onNearingCompletion() {
                         Log.d(TAG + "Timing", "Video nearing completion, starting crossfade");
-
-                        if (nextVideoReady && !nextVideoStarted) {
-                            startNextVideoAsync();
-                        }
-
-                        postDelayed(new Runnable() {
-                            @Override
-                            public void run() {
-                                beginCrossFade();
-                            }
-                        }, START_ADVANCE_TIME);
+                        beginCrossFade();
                     }
                 });
 
                 // Schedule preparation of next video
-                long delayUntilPreparation = currentVideoDuration - PREPARE_BEFORE_END;
+                long delayUntilPreparation = getPrepareDelay(currentVideoDuration);
                 if (delayUntilPreparation > 0) {
                     postDelayed(new Runnable() {
                         @Override
@@ -546,60 +620,56 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
                     prepareNextVideoAsync();
                 }
 
-                backgroundHandler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        fadingOut.stop();
-                    }
-                });
+                fadingOut.stop();
+                Log.d(TAG, playbackActor.toString());
             }
         });
-
-        crossFadeAnimator.start();
     }
 
-    private void fadeIn(final VideoLayer layer, final float targetBrightness) {
-        ValueAnimator animator = ValueAnimator.ofFloat(0f, targetBrightness);
-        animator.setDuration(FADE_DURATION);
-        animator.setInterpolator(new LinearInterpolator());
-        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+    /**
+     * Run onEnd on the main thread once the fades are done. In compositor mode a busy main
+     * thread delays onEnd, not the fade.
+     */
+    private void runAfterFade(final Runnable onEnd) {
+        pendingFadeEnd = new Runnable() {
             @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                layer.setAlpha((Float) animation.getAnimatedValue());
+            public void run() {
+                pendingFadeEnd = null;
+                onEnd.run();
             }
-        });
-        animator.start();
+        };
+        postDelayed(pendingFadeEnd, FADE_DURATION);
+    }
+
+    /**
+     * A new fade replaces a running one, which is finished right away
+     */
+    private void finishPendingFade() {
+        Runnable end = pendingFadeEnd;
+        if (end != null) {
+            removeCallbacks(end);
+            end.run();
+        }
+    }
+
+    private void fadeIn(VideoLayer layer, float targetBrightness) {
+        layer.setAlpha(0f);
+        layer.fadeTo(targetBrightness, FADE_DURATION);
     }
 
     private void fadeOutAndPlayNext() {
+        finishPendingFade();
         final VideoLayer fadingOut = currentLayer;
-        ValueAnimator animator = ValueAnimator.ofFloat(currentVideoBrightness, 0f);
-        animator.setDuration(FADE_DURATION);
-        animator.setInterpolator(new LinearInterpolator());
-        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                fadingOut.setAlpha((Float) animation.getAnimatedValue());
-            }
-        });
-        animator.addListener(new android.animation.AnimatorListenerAdapter() {
+        fadingOut.setAlpha(currentVideoBrightness);
+        fadingOut.fadeTo(0f, FADE_DURATION);
+        runAfterFade(new Runnable() {
             @Override
-            public void onAnimationEnd(android.animation.Animator animation) {
-                backgroundHandler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        fadingOut.stop();
-                        mainHandler.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                playNextVideo();
-                            }
-                        });
-                    }
-                });
+            public void run() {
+                // Queued behind the stop on the playback thread
+                fadingOut.stop();
+                playNextVideo();
             }
         });
-        animator.start();
     }
 
     public void pauseVideo() {
@@ -616,9 +686,15 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
         if (nextLayer != null && nextLayer.isPlaying()) {
             nextLayer.pause();
         }
+        if (compositor != null) {
+            compositor.onPause();
+        }
     }
 
     public void resumeVideo() {
+        if (compositor != null) {
+            compositor.onResume();
+        }
         if (currentLayer != null) {
             currentLayer.resume();
         }
@@ -628,9 +704,12 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
     }
 
     public void cleanup() {
-        if (crossFadeAnimator != null) {
-            crossFadeAnimator.cancel();
+        if (pendingFadeEnd != null) {
+            removeCallbacks(pendingFadeEnd);
+            pendingFadeEnd = null;
         }
+        layer1.cancelFade();
+        layer2.cancelFade();
         if (scheduledCrossFade != null) {
             removeCallbacks(scheduledCrossFade);
         }
@@ -639,6 +718,8 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
         }
         layer1.cleanup();
         layer2.cleanup();
+        playbackActor.quit();
+        prefetcher.release();
 
         if (backgroundThread != null) {
             backgroundThread.quit();
@@ -659,29 +740,224 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
     }
 
 
-    private static class VideoLayer extends TextureView implements TextureView.SurfaceTextureListener {
+    private static class VideoLayer extends TextureView implements TextureView.SurfaceTextureListener,
+            VideoCompositorView.SurfaceListener {
         private static final String TAG = "VideoLayer";
-        private MediaPlayer mediaPlayer;
-        private Surface surface;
+        // Player calls are queued to the actor, state is read from its snapshots
+        private final PlaybackActor actor;
+        private final int player;
+        private volatile Surface surface;
         private boolean surfaceReady = false;
-        private final Object mediaPlayerLock = new Object();
         private Handler completionCheckHandler;
-        private Runnable completionCheckRunnable;
         private VideoCallback currentCallback;
 
+        // Near completion is FADE_DURATION + 200ms buffer before the end, so the video
+        // is still playing when the crossfade ends. Default until the next video is known.
+        private static final int NEAR_COMPLETION_LEAD = 1200;
+        // Second position sample to measure the playback rate
+        private static final long RATE_SAMPLE_DELAY = 2000;
+        // Wakeups this close to the predicted time count as on time
+        private static final long WAKEUP_TOLERANCE = 30;
+
+        // Completion is predicted from a few position samples instead of polling the player.
+        // Main thread only, except monitoredDuration which engine events may clear from the playback thread
+        private final PlaybackClock playbackClock = new PlaybackClock();
+        private volatile int monitoredDuration = 0;
+        private boolean rateSampleScheduled = false;
+        private int nearCompletionLead = NEAR_COMPLETION_LEAD;
+        private final Runnable completionCheck = new Runnable() {
+            @Override
+            public void run() {
+                scheduleNearCompletion();
+            }
+        };
+        // Target of the running fade, negative if none. Main thread only.
+        private static final LinearInterpolator LINEAR = new LinearInterpolator();
+        private float fadeTarget = -1f;
+        private final Runnable fadeFinished = new Runnable() {
+            @Override
+            public void run() {
+                // The animator's last frame may still be pending
+                float target = fadeTarget;
+                fadeTarget = -1f;
+                if (getAlpha() != target) {
+                    VideoLayer.super.setAlpha(target);
+                }
+                if (compositor == null) {
+                    stopRecordingFade();
+                    Log.d(TAG, "TextureView " + fadeSmoothness);
+                }
+            }
+        };
+        // Alpha of a TextureView fade as drawn, to compare with the compositor under main thread stalls
+        private final FadeSmoothness fadeSmoothness = new FadeSmoothness();
+        private boolean recordingFade = false;
+        private final ViewTreeObserver.OnDrawListener fadeDrawRecorder = new ViewTreeObserver.OnDrawListener() {
+            @Override
+            public void onDraw() {
+                fadeSmoothness.record(SystemClock.uptimeMillis(), getAlpha());
+            }
+        };
+        private final Runnable positionSampled = new Runnable() {
+            @Override
+            public void run() {
+                onPositionSampled();
+            }
+        };
+        private final Runnable pauseCompletionCheck = new Runnable() {
+            @Override
+            public void run() {
+                completionCheckHandler.removeCallbacks(completionCheck);
+                playbackClock.clearAnchor();
+            }
+        };
+        private final Runnable resyncCompletionCheck = new Runnable() {
+            @Override
+            public void run() {
+                playbackClock.clearAnchor();
+                scheduleNearCompletion();
+            }
+        };
+
         interface VideoCallback {
             void onPrepared(int duration);
             void onError();
             void onNearingCompletion();  // NEW: Called FADE_DURATION before end
         }
 
-        public VideoLayer(Context context) {
+        interface StartCallback {
+            /**
+             * The video plays and its first frame is on screen, called on the main thread
+             *
+             * @param latency time from startFromBeginning() to the first frame
+             */
+            void onFirstFrame(long latency);
+        }
+
+        // Start from the beginning driven by player events: seek complete -> start ->
+        // rendering start -> texture updated. Main thread only.
+        private static final long FIRST_FRAME_TIMEOUT = 1500;
+        private StartCallback pendingStart;
+        private long startRequested;
+        private boolean awaitingSeek;
+        private boolean renderingStarted;
+        private final Runnable seekCompleted = new Runnable() {
+            @Override
+            public void run() {
+                onStartSeekComplete();
+            }
+        };
+        private final Runnable renderingStart = new Runnable() {
+            @Override
+            public void run() {
+                onStartRenderingStart();
+            }
+        };
+        private final Runnable firstFrameTimeout = new Runnable() {
+            @Override
+            public void run() {
+                Log.w(TAG, "No first frame " + FIRST_FRAME_TIMEOUT + "ms after start, continuing"
+                        + (awaitingSeek ? " without seek" : ""));
+                if (awaitingSeek) {
+                    awaitingSeek = false;
+                    start();
+                }
+                onFirstFrameShown();
+            }
+        };
+        private final Runnable cancelStart = new Runnable() {
+            @Override
+            public void run() {
+                pendingStart = null;
+                completionCheckHandler.removeCallbacks(firstFrameTimeout);
+            }
+        };
+
+        // Compositor mode: the player renders into a compositor texture and this view stays hidden
+        private VideoCompositorView compositor;
+        private int compositorLayer;
+
+        /**
+         * @param player index of the layer's player in the actor
+         */
+        public VideoLayer(Context context, PlaybackActor actor, int player) {
             super(context);
+            this.actor = actor;
+            this.player = player;
             setOpaque(false);
             setSurfaceTextureListener(this);
             completionCheckHandler = new Handler(Looper.getMainLooper());
         }
 
+        public void attachCompositor(VideoCompositorView compositor, int layer) {
+            this.compositor = compositor;
+            this.compositorLayer = layer;
+            setVisibility(GONE);
+            compositor.setLayerAlpha(layer, getAlpha());
+            compositor.setSurfaceListener(layer, this);
+        }
+
+        @Override
+        public void onCompositorSurface(Surface compositorSurface) {
+            surface = compositorSurface;
+            actor.setSurface(player, compositorSurface);
+            surfaceReady = true;
+            Log.d(TAG, "Compositor surface " + compositorLayer + " available");
+        }
+
+        /**
+         * Set the alpha right away, a running fade is cancelled. In compositor mode the alpha is
+         * blended by the shader.
+         */
+        @Override
+        public void setAlpha(float alpha) {
+            cancelFade();
+            super.setAlpha(alpha);
+            if (compositor != null) {
+                compositor.setLayerAlpha(compositorLayer, alpha);
+            }
+        }
+
+        /**
+         * Fade the alpha. The compositor ramps it on its GL thread, without the main thread.
+         * A TextureView layer uses a ViewPropertyAnimator, which only sets the layer property
+         * but still steps on the main thread's Choreographer, so a stalled main thread
+         * stalls this fade. Its drawn alpha steps are logged when it ends.
+         */
+        public void fadeTo(float alpha, long duration) {
+            cancelFade();
+            fadeTarget = alpha;
+            if (compositor != null) {
+                super.setAlpha(alpha);
+                compositor.fadeLayer(compositorLayer, alpha, duration);
+            } else {
+                fadeSmoothness.reset();
+                getViewTreeObserver().addOnDrawListener(fadeDrawRecorder);
+                recordingFade = true;
+                animate().alpha(alpha).setDuration(duration).setInterpolator(LINEAR);
+            }
+            completionCheckHandler.postDelayed(fadeFinished, duration);
+        }
+
+        public void cancelFade() {
+            if (fadeTarget < 0f) {
+                return;
+            }
+            fadeTarget = -1f;
+            completionCheckHandler.removeCallbacks(fadeFinished);
+            if (compositor == null) {
+                animate().cancel();
+                stopRecordingFade();
+            }
+        }
+
+        private void stopRecordingFade() {
+            if (recordingFade) {
+                recordingFade = false;
+                getViewTreeObserver().removeOnDrawListener(fadeDrawRecorder);
+            }
+        }
+
         public boolean isReady() {
             return surfaceReady;
         }
@@ -689,144 +965,207 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
         public void loadVideo(String videoPath, final VideoCallback callback) {
             this.currentCallback = callback;
 
-            try {
-                synchronized (mediaPlayerLock) {
-                    if (mediaPlayer != null) {
-                        mediaPlayer.reset();
-                    } else {
-                        mediaPlayer = new MediaPlayer();
-                    }
-
-                    mediaPlayer.setDataSource(videoPath);
-                    mediaPlayer.setSurface(surface);
-                    mediaPlayer.setVolume(0f, 0f);
-
-                    mediaPlayer.setOnPreparedListener(new MediaPlayer.OnPreparedListener() {
+            // Engine events may arrive on the playback thread, the callback runs on the main thread
+            actor.prepare(player, videoPath, false, surface, new EngineListener(callback) {
+                @Override
+                public void onPrepared(final int duration) {
+                    completionCheckHandler.post(new Runnable() {
                         @Override
-                        public void onPrepared(MediaPlayer mp) {
-                            int duration = mp.getDuration();
+                        public void run() {
                             callback.onPrepared(duration);
 
                             // NEW: Start monitoring for near-completion
                             startCompletionMonitoring(duration);
                         }
                     });
+                }
 
-                    mediaPlayer.setOnErrorListener(new MediaPlayer.OnErrorListener() {
+                @Override
+                public void onError(String message) {
+                    Log.e(TAG, "Player error: " + message);
+                    completionCheckHandler.post(new Runnable() {
                         @Override
-                        public boolean onError(MediaPlayer mp, int what, int extra) {
-                            Log.e(TAG, "Player error: " + what + ", " + extra);
+                        public void run() {
                             callback.onError();
-                            return true;
-                        }
-                    });
-
-                    mediaPlayer.setOnCompletionListener(new MediaPlayer.OnCompletionListener() {
-                        @Override
-                        public void onCompletion(MediaPlayer mp) {
-                            Log.d(TAG + "Timing", "Video ended");
-                            stopCompletionMonitoring();
                         }
                     });
+                }
 
-                    mediaPlayer.prepareAsync();
+                @Override
+                public void onCompletion() {
+                    Log.d(TAG + "Timing", "Video ended");
+                    stopCompletionMonitoring();
                 }
-            } catch (Exception e) {
-                Log.e(TAG, "Exception loading video: " + e.getMessage());
-                e.printStackTrace();
-                callback.onError();
-            }
+            });
         }
 
-        public void loadVideoAsync(final String videoPath, Handler backgroundHandler, final VideoCallback callback) {
+        /**
+         * Prepare looping, so the video doesn't end during the crossfade. Returns right away,
+         * the callback is called on the playback thread.
+         */
+        public void loadVideoAsync(String videoPath, VideoCallback callback) {
             this.currentCallback = callback;
+            actor.prepare(player, videoPath, true, surface, new EngineListener(callback));
+        }
 
-            backgroundHandler.post(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        synchronized (mediaPlayerLock) {
-                            if (mediaPlayer != null) {
-                                mediaPlayer.reset();
-                            } else {
-                                mediaPlayer = new MediaPlayer();
-                            }
+        /**
+         * Maps engine events to a VideoCallback, seeks resync the completion monitoring
+         */
+        private class EngineListener implements VideoEngine.Listener {
+            private final VideoCallback callback;
 
-                            mediaPlayer.setDataSource(videoPath);
-                            mediaPlayer.setSurface(surface);
-                            mediaPlayer.setVolume(0f, 0f);
-                            mediaPlayer.setLooping(true);  // Loop so video doesn't end during crossfade
-
-                            mediaPlayer.setOnPreparedListener(new MediaPlayer.OnPreparedListener() {
-                                @Override
-                                public void onPrepared(MediaPlayer mp) {
-                                    int duration = mp.getDuration();
-                                    callback.onPrepared(duration);
-                                }
-                            });
-
-                            mediaPlayer.setOnErrorListener(new MediaPlayer.OnErrorListener() {
-                                @Override
-                                public boolean onError(MediaPlayer mp, int what, int extra) {
-                                    Log.e(TAG, "Player error: " + what + ", " + extra);
-                                    callback.onError();
-                                    return true;
-                                }
-                            });
-
-                            mediaPlayer.prepareAsync();
-                        }
-                    } catch (Exception e) {
-                        Log.e(TAG, "Exception loading video async: " + e.getMessage());
-                        e.printStackTrace();
-                        callback.onError();
-                    }
+            EngineListener(VideoCallback callback) {
+                this.callback = callback;
+            }
+
+            @Override
+            public void onPrepared(int duration) {
+                callback.onPrepared(duration);
+            }
+
+            @Override
+            public void onError(String message) {
+                Log.e(TAG, "Player error: " + message);
+                callback.onError();
+            }
+
+            @Override
+            public void onCompletion() {
+            }
+
+            @Override
+            public void onSeekComplete() {
+                if (monitoredDuration > 0) {
+                    completionCheckHandler.post(resyncCompletionCheck);
                 }
-            });
+                completionCheckHandler.post(seekCompleted);
+            }
+
+            @Override
+            public void onRenderingStart() {
+                completionCheckHandler.post(renderingStart);
+            }
+        }
+
+        /**
+         * Seek to the start and play, the callback follows once the first frame is on screen.
+         * Main thread only.
+         */
+        public void startFromBeginning(StartCallback callback) {
+            pendingStart = callback;
+            startRequested = SystemClock.uptimeMillis();
+            awaitingSeek = true;
+            renderingStarted = false;
+            completionCheckHandler.removeCallbacks(firstFrameTimeout);
+            completionCheckHandler.postDelayed(firstFrameTimeout, FIRST_FRAME_TIMEOUT);
+            seekTo(0);
+        }
+
+        private void onStartSeekComplete() {
+            if (pendingStart == null || !awaitingSeek) {
+                return;
+            }
+            awaitingSeek = false;
+            start();
+        }
+
+        private void onStartRenderingStart() {
+            if (pendingStart == null || awaitingSeek) {
+                return;
+            }
+            renderingStarted = true;
+            // The compositor draws new frames right away, a TextureView once its texture was updated
+            if (compositor != null) {
+                onFirstFrameShown();
+            }
+        }
+
+        private void onFirstFrameShown() {
+            completionCheckHandler.removeCallbacks(firstFrameTimeout);
+            StartCallback callback = pendingStart;
+            pendingStart = null;
+            if (callback != null) {
+                callback.onFirstFrame(SystemClock.uptimeMillis() - startRequested);
+            }
         }
 
         /**
-         * NEW: Monitor video position and trigger callback when nearing completion
+         * Trigger the callback nearCompletionLead before the end. Position is sampled when
+         * monitoring starts, once more to measure the rate and once at the predicted time,
+         * in between nothing runs.
          */
         private void startCompletionMonitoring(final int duration) {
             stopCompletionMonitoring();
+            monitoredDuration = duration;
+            playbackClock.reset();
+            rateSampleScheduled = false;
+            scheduleNearCompletion();
+        }
 
-            completionCheckRunnable = new Runnable() {
-                @Override
-                public void run() {
-                    synchronized (mediaPlayerLock) {
-                        if (mediaPlayer != null && mediaPlayer.isPlaying()) {
-                            try {
-                                int currentPosition = mediaPlayer.getCurrentPosition();
-                                int remaining = duration - currentPosition;
-
-                                // Trigger callback when remaining time ≤ FADE_DURATION + buffer
-                                // The +200ms buffer ensures video is still playing when crossfade ends
-                                if (remaining <= 1200 && remaining > 0) {  // FADE_DURATION + 200ms buffer
-                                    if (currentCallback != null) {
-                                        currentCallback.onNearingCompletion();
-                                        currentCallback = null;  // Only call once
-                                    }
-                                    return;  // Stop checking
-                                }
-
-                                // Check again in 100ms
-                                completionCheckHandler.postDelayed(this, 100);
-                            } catch (Exception e) {
-                                // Video might have ended
-                            }
-                        }
-                    }
+        private void stopCompletionMonitoring() {
+            monitoredDuration = 0;
+            completionCheckHandler.removeCallbacks(completionCheck);
+            completionCheckHandler.removeCallbacks(resyncCompletionCheck);
+        }
+
+        /**
+         * Have the playback thread sample the position, onPositionSampled follows
+         */
+        private void scheduleNearCompletion() {
+            completionCheckHandler.removeCallbacks(completionCheck);
+            if (monitoredDuration <= 0) {
+                return;
+            }
+            actor.sample(player, positionSampled);
+        }
+
+        /**
+         * Post a single wakeup for the predicted near completion time
+         */
+        private void onPositionSampled() {
+            int duration = monitoredDuration;
+            if (duration <= 0) {
+                return;
+            }
+
+            PlaybackState state = actor.getState(player);
+            if (!state.isPlaying()) {
+                // Rescheduled by resume()
+                return;
+            }
+
+            long now = SystemClock.uptimeMillis();
+            playbackClock.addSample(state.getSampledAt(), state.getPosition());
+            long delay = playbackClock.getUptimeAt(duration - nearCompletionLead) - now;
+
+            if (delay <= WAKEUP_TOLERANCE) {
+                monitoredDuration = 0;
+                if (currentCallback != null) {
+                    VideoCallback callback = currentCallback;
+                    currentCallback = null;  // Only call once
+                    callback.onNearingCompletion();
                 }
-            };
+                return;
+            }
 
-            completionCheckHandler.postDelayed(completionCheckRunnable, 100);
+            if (!rateSampleScheduled && delay > RATE_SAMPLE_DELAY) {
+                rateSampleScheduled = true;
+                delay = RATE_SAMPLE_DELAY;
+            }
+            completionCheckHandler.postDelayed(completionCheck, delay);
         }
 
-        private void stopCompletionMonitoring() {
-            if (completionCheckRunnable != null) {
-                completionCheckHandler.removeCallbacks(completionCheckRunnable);
-                completionCheckRunnable = null;
+        /**
+         * Fire onNearingCompletion this long before the end, a running monitor is rescheduled.
+         * Main thread only.
+         */
+        public void setNearCompletionLead(int lead) {
+            if (lead == nearCompletionLead) {
+                return;
+            }
+            nearCompletionLead = lead;
+            if (monitoredDuration > 0) {
+                completionCheckHandler.post(resyncCompletionCheck);
             }
         }
 
@@ -845,126 +1184,49 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
         }
 
         public void start() {
-            synchronized (mediaPlayerLock) {
-                if (mediaPlayer != null) {
-                    try {
-                        mediaPlayer.start();
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error starting: " + e.getMessage());
-                    }
-                }
-            }
+            actor.start(player);
         }
 
         public void seekTo(int msec) {
-            synchronized (mediaPlayerLock) {
-                if (mediaPlayer != null) {
-                    try {
-                        mediaPlayer.seekTo(msec);
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error seeking: " + e.getMessage());
-                    }
-                }
-            }
+            actor.seekTo(player, msec);
         }
 
         public void stop() {
             stopCompletionMonitoring();
-            synchronized (mediaPlayerLock) {
-                if (mediaPlayer != null) {
-                    try {
-                        if (mediaPlayer.isPlaying()) {
-                            mediaPlayer.stop();
-                        }
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error stopping: " + e.getMessage());
-                    }
-                }
-            }
+            completionCheckHandler.post(cancelStart);
+            actor.stop(player);
         }
 
         public void pause() {
-            synchronized (mediaPlayerLock) {
-                if (mediaPlayer != null) {
-                    try {
-                        if (mediaPlayer.isPlaying()) {
-                            mediaPlayer.pause();
-                        }
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error pausing: " + e.getMessage());
-                    }
-                }
+            actor.pause(player);
+            if (monitoredDuration > 0) {
+                completionCheckHandler.post(pauseCompletionCheck);
             }
         }
 
         public void resume() {
-            synchronized (mediaPlayerLock) {
-                if (mediaPlayer != null) {
-                    try {
-                        if (!mediaPlayer.isPlaying()) {
-                            mediaPlayer.start();
-                        }
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error resuming: " + e.getMessage());
-                    }
-                }
+            actor.resume(player);
+            if (monitoredDuration > 0) {
+                completionCheckHandler.post(resyncCompletionCheck);
             }
         }
 
         public boolean isPlaying() {
-            synchronized (mediaPlayerLock) {
-                if (mediaPlayer != null) {
-                    try {
-                        return mediaPlayer.isPlaying();
-                    } catch (Exception e) {
-                        return false;
-                    }
-                }
-                return false;
-            }
+            return actor.getState(player).isPlaying();
         }
 
         public int getDuration() {
-            synchronized (mediaPlayerLock) {
-                if (mediaPlayer != null) {
-                    try {
-                        return mediaPlayer.getDuration();
-                    } catch (Exception e) {
-                        return 0;
-                    }
-                }
-                return 0;
-            }
+            return actor.getState(player).getDuration();
         }
 
         public int getCurrentPosition() {
-            synchronized (mediaPlayerLock) {
-                if (mediaPlayer != null) {
-                    try {
-                        return mediaPlayer.getCurrentPosition();
-                    } catch (Exception e) {
-                        return 0;
-                    }
-                }
-                return 0;
-            }
+            return actor.getState(player).getPositionAt(SystemClock.uptimeMillis());
         }
 
         public void cleanup() {
             stopCompletionMonitoring();
-            synchronized (mediaPlayerLock) {
-                if (mediaPlayer != null) {
-                    try {
-                        if (mediaPlayer.isPlaying()) {
-                            mediaPlayer.stop();
-                        }
-                        mediaPlayer.release();
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error cleaning up: " + e.getMessage());
-                    }
-                    mediaPlayer = null;
-                }
-            }
+            completionCheckHandler.post(cancelStart);
+            actor.release(player);
         }
 
         @Override
@@ -987,6 +1249,9 @@ public class CrossFadeVideoView extends FrameLayout implements IDisplayMode {
 
         @Override
         public void onSurfaceTextureUpdated(SurfaceTexture surface) {
+            if (pendingStart != null && renderingStarted) {
+                onFirstFrameShown();
+            }
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.lvr.standclock;
+
+import java.util.Locale;
+
+/**
+ * Alpha of a fading layer as drawn, frame by frame. A fade whose value is set by a thread that
+ * stalls shows up as frames without change followed by one large step. Written by the drawing
+ * thread. Pure Java.
+ */
+public class FadeSmoothness {
+
+    private int frames;
+    private long lastFrameMillis;
+    private float lastAlpha;
+    private float maxStep;
+    private long maxFrameGap;
+
+    public void reset() {
+        frames = 0;
+        maxStep = 0f;
+        maxFrameGap = 0;
+    }
+
+    public void record(long frameMillis, float alpha) {
+        if (frames > 0) {
+            maxStep = Math.max(maxStep, Math.abs(alpha - lastAlpha));
+            maxFrameGap = Math.max(maxFrameGap, frameMillis - lastFrameMillis);
+        }
+        frames++;
+        lastFrameMillis = frameMillis;
+        lastAlpha = alpha;
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+
+    /**
+     * Largest alpha change between two consecutive frames
+     */
+    public float getMaxStep() {
+        return maxStep;
+    }
+
+    public long getMaxFrameGap() {
+        return maxFrameGap;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "Fade: %d frames, max alpha step %.3f, max frame gap %dms",
+                frames, maxStep, maxFrameGap);
+    }
+}
@@ -0,0 +1,126 @@
+package com.lvr.standclock;
+
+import java.util.Locale;
+
+/**
+ * Frame pacing of one animation thread. For every frame it records how late the thread
+ * started on the vsync (latency), how long the frame took (work) and the time since the
+ * previous frame (interval). Written by the animating thread, readable from any thread.
+ * Pure Java.
+ */
+public class FrameStats {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    // Frames that start later than this after their vsync are counted as janky
+    private static final long JANK_LATENCY_NANOS = 16 * NANOS_PER_MILLI;
+
+    private final String name;
+
+    private long frameCount;
+    private long jankCount;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+    private long totalWorkNanos;
+    private long maxWorkNanos;
+    private long intervalCount;
+    private long totalIntervalNanos;
+    private long maxIntervalNanos;
+    private long lastFrameTimeNanos = 0;
+
+    public FrameStats(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param frameTimeNanos vsync time of the frame
+     * @param startNanos     when the thread started working on it
+     * @param endNanos       when the frame was finished
+     */
+    public synchronized void record(long frameTimeNanos, long startNanos, long endNanos) {
+        long latency = Math.max(0, startNanos - frameTimeNanos);
+        long work = Math.max(0, endNanos - startNanos);
+
+        frameCount++;
+        totalLatencyNanos += latency;
+        maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+        totalWorkNanos += work;
+        maxWorkNanos = Math.max(maxWorkNanos, work);
+        if (latency > JANK_LATENCY_NANOS) {
+            jankCount++;
+        }
+
+        if (lastFrameTimeNanos != 0) {
+            long interval = frameTimeNanos - lastFrameTimeNanos;
+            intervalCount++;
+            totalIntervalNanos += interval;
+            maxIntervalNanos = Math.max(maxIntervalNanos, interval);
+        }
+        lastFrameTimeNanos = frameTimeNanos;
+    }
+
+    /**
+     * The animation stopped, the gap until the next frame is not a frame interval
+     */
+    public synchronized void markIdle() {
+        lastFrameTimeNanos = 0;
+    }
+
+    public synchronized void reset() {
+        frameCount = 0;
+        jankCount = 0;
+        totalLatencyNanos = 0;
+        maxLatencyNanos = 0;
+        totalWorkNanos = 0;
+        maxWorkNanos = 0;
+        intervalCount = 0;
+        totalIntervalNanos = 0;
+        maxIntervalNanos = 0;
+        lastFrameTimeNanos = 0;
+    }
+
+    public synchronized long getFrameCount() {
+        return frameCount;
+    }
+
+    public synchronized long getJankCount() {
+        return jankCount;
+    }
+
+    public synchronized float getAverageLatencyMillis() {
+        return frameCount == 0 ? 0 : totalLatencyNanos / (float) frameCount / NANOS_PER_MILLI;
+    }
+
+    public synchronized float getMaxLatencyMillis() {
+        return maxLatencyNanos / (float) NANOS_PER_MILLI;
+    }
+
+    public synchronized float getAverageWorkMillis() {
+        return frameCount == 0 ? 0 : totalWorkNanos / (float) frameCount / NANOS_PER_MILLI;
+    }
+
+    public synchronized float getMaxWorkMillis() {
+        return maxWorkNanos / (float) NANOS_PER_MILLI;
+    }
+
+    public synchronized float getAverageIntervalMillis() {
+        return intervalCount == 0 ? 0 : totalIntervalNanos / (float) intervalCount / NANOS_PER_MILLI;
+    }
+
+    public synchronized float getMaxIntervalMillis() {
+        return maxIntervalNanos / (float) NANOS_PER_MILLI;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US,
+                "%s: %d frames, interval avg %.1fms max %.1fms, latency avg %.1fms max %.1fms, work avg %.2fms max %.2fms, %d janky",
+                name, frameCount, getAverageIntervalMillis(), getMaxIntervalMillis(),
+                getAverageLatencyMillis(), getMaxLatencyMillis(),
+                getAverageWorkMillis(), getMaxWorkMillis(), jankCount);
+    }
+}
@@ -0,0 +1,141 @@
+package com.lvr.standclock;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+
+/**
+ * Pre-rasterized clock glyphs (space, digits and colon).
+ * Glyphs are rendered once into alpha masks, the color is applied when they are blitted,
+ * so the atlas only has to be rebuilt when the text size or the stroke outline changes.
+ */
+public class GlyphAtlas {
+
+    static final String GLYPHS = " 0123456789:";
+
+    private Bitmap fillMask;
+    private Bitmap strokeMask;
+
+    private final float[] advances = new float[GLYPHS.length()];
+    private int cellWidth;
+    private int cellHeight;
+    private int cellBaseline;
+    private int padding;
+
+    // Tight bounds of the glyph set, relative to the baseline
+    private final Rect glyphBounds = new Rect();
+
+    private final Paint maskPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint blitPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect src = new Rect();
+    private final RectF dst = new RectF();
+
+    /**
+     * Rasterize all glyphs with the given typeface and size.
+     * @param strokeWidth outline width, 0 for no outline mask
+     */
+    public void build(Typeface typeface, float textSize, float strokeWidth) {
+        recycle();
+
+        maskPaint.setTypeface(typeface);
+        maskPaint.setTextSize(textSize);
+        maskPaint.setStyle(Paint.Style.FILL);
+        maskPaint.getTextBounds(GLYPHS, 0, GLYPHS.length(), glyphBounds);
+
+        float maxAdvance = 0;
+        for (int i = 0; i < GLYPHS.length(); i++) {
+            advances[i] = maskPaint.measureText(GLYPHS, i, i + 1);
+            maxAdvance = Math.max(maxAdvance, advances[i]);
+        }
+
+        // Leave room for the outline around every glyph
+        padding = (int) Math.ceil(strokeWidth) + 1;
+        cellWidth = (int) Math.ceil(maxAdvance) + 2 * padding;
+        cellHeight = glyphBounds.height() + 2 * padding;
+        cellBaseline = padding - glyphBounds.top;
+
+        fillMask = renderMask(Paint.Style.FILL, 0);
+        if (strokeWidth > 0) {
+            strokeMask = renderMask(Paint.Style.STROKE, strokeWidth);
+        }
+    }
+
+    private Bitmap renderMask(Paint.Style style, float strokeWidth) {
+        Bitmap mask = Bitmap.createBitmap(cellWidth * GLYPHS.length(), cellHeight, Bitmap.Config.ALPHA_8);
+        Canvas canvas = new Canvas(mask);
+
+        maskPaint.setStyle(style);
+        maskPaint.setStrokeWidth(strokeWidth);
+        for (int i = 0; i < GLYPHS.length(); i++) {
+            canvas.drawText(GLYPHS, i, i + 1, i * cellWidth + padding, cellBaseline, maskPaint);
+        }
+        maskPaint.setStyle(Paint.Style.FILL);
+        return mask;
+    }
+
+    public boolean isReady() {
+        return fillMask != null;
+    }
+
+    /**
+     * Height of the tallest glyph, used to center the time vertically
+     */
+    public int getTextHeight() {
+        return glyphBounds.height();
+    }
+
+    public float measure(char[] text, int start, int count) {
+        float width = 0;
+        for (int i = start; i < start + count; i++) {
+            int index = GLYPHS.indexOf(text[i]);
+            if (index >= 0) {
+                width += advances[index];
+            }
+        }
+        return width;
+    }
+
+    /**
+     * Blit text from the atlas, the outline (if any) is drawn first and the fill on top of it.
+     */
+    public void draw(Canvas canvas, char[] text, int start, int count, float x, float y,
+                     int fillColor, int strokeColor) {
+        if (strokeMask != null) {
+            drawMask(canvas, strokeMask, text, start, count, x, y, strokeColor);
+        }
+        drawMask(canvas, fillMask, text, start, count, x, y, fillColor);
+    }
+
+    private void drawMask(Canvas canvas, Bitmap mask, char[] text, int start, int count,
+                          float x, float y, int color) {
+        blitPaint.setColor(color);
+
+        float penX = x;
+        for (int i = start; i < start + count; i++) {
+            int index = GLYPHS.indexOf(text[i]);
+            if (index < 0) {
+                continue;
+            }
+
+            src.set(index * cellWidth, 0, (index + 1) * cellWidth, cellHeight);
+            dst.set(penX - padding, y - cellBaseline, penX - padding + cellWidth, y - cellBaseline + cellHeight);
+            canvas.drawBitmap(mask, src, dst, blitPaint);
+
+            penX += advances[index];
+        }
+    }
+
+    public void recycle() {
+        if (fillMask != null) {
+            fillMask.recycle();
+            fillMask = null;
+        }
+        if (strokeMask != null) {
+            strokeMask.recycle();
+            strokeMask = null;
+        }
+    }
+}
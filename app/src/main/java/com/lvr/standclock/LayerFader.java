@@ -0,0 +1,108 @@
+package com.lvr.standclock;
+
+/**
+ * Alpha of the compositor layers. The main thread sets alphas and starts fades, the drawing
+ * thread evaluates them for each frame and keeps drawing while a fade runs, so a started fade
+ * needs nothing more from the main thread. The alpha steps of each fade are recorded as drawn.
+ * Pure Java, times in uptime milliseconds.
+ */
+public class LayerFader {
+
+    // Guarded by this. A ramp overrides its layer's alpha until it finished.
+    private final float[] alpha;
+    private final AlphaRamp[] ramps;
+
+    // Drawing thread only
+    private final AlphaRamp[] drawnRamps;
+    private final AlphaRamp[] recordedRamps;
+    private final boolean[] finished;
+    private final FadeSmoothness[] smoothness;
+
+    public LayerFader(int layerCount) {
+        alpha = new float[layerCount];
+        ramps = new AlphaRamp[layerCount];
+        drawnRamps = new AlphaRamp[layerCount];
+        recordedRamps = new AlphaRamp[layerCount];
+        finished = new boolean[layerCount];
+        smoothness = new FadeSmoothness[layerCount];
+        for (int i = 0; i < layerCount; i++) {
+            smoothness[i] = new FadeSmoothness();
+        }
+    }
+
+    /**
+     * Set the alpha right away, a running fade is cancelled
+     *
+     * @return false if nothing changed
+     */
+    public synchronized boolean setAlpha(int layer, float value) {
+        if (alpha[layer] == value && ramps[layer] == null) {
+            return false;
+        }
+        alpha[layer] = value;
+        ramps[layer] = null;
+        return true;
+    }
+
+    /**
+     * Fade linearly to target, from the alpha the layer has at startMillis. A running fade
+     * is continued from where it is, not from its last drawn frame.
+     */
+    public synchronized void fade(int layer, float target, long startMillis, long durationMillis) {
+        AlphaRamp running = ramps[layer];
+        float from = running != null ? running.valueAt(startMillis) : alpha[layer];
+        ramps[layer] = new AlphaRamp(from, target, startMillis, durationMillis);
+    }
+
+    /**
+     * Alpha of every layer for the frame drawn at frameMillis, called by the drawing thread
+     *
+     * @return true while a fade runs, the next frame has to be drawn then
+     */
+    public boolean evaluate(long frameMillis, float[] out) {
+        boolean fading = false;
+        synchronized (this) {
+            for (int i = 0; i < alpha.length; i++) {
+                AlphaRamp ramp = ramps[i];
+                drawnRamps[i] = ramp;
+                finished[i] = ramp != null && ramp.isFinishedAt(frameMillis);
+                if (ramp != null) {
+                    alpha[i] = ramp.valueAt(frameMillis);
+                    if (finished[i]) {
+                        ramps[i] = null;
+                    } else {
+                        fading = true;
+                    }
+                }
+                out[i] = alpha[i];
+            }
+        }
+
+        for (int i = 0; i < alpha.length; i++) {
+            if (drawnRamps[i] == null) {
+                continue;
+            }
+            if (drawnRamps[i] != recordedRamps[i]) {
+                // A new fade, or one that replaced a fade in progress
+                recordedRamps[i] = drawnRamps[i];
+                smoothness[i].reset();
+            }
+            smoothness[i].record(frameMillis, out[i]);
+        }
+        return fading;
+    }
+
+    /**
+     * Whether a fade of the layer ended with the last evaluated frame
+     */
+    public boolean isFadeFinished(int layer) {
+        return finished[layer];
+    }
+
+    /**
+     * Recorded steps of the layer's current or last fade, drawing thread only
+     */
+    public FadeSmoothness getSmoothness(int layer) {
+        return smoothness[layer];
+    }
+}
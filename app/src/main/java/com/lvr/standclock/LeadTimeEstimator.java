@@ -0,0 +1,246 @@
+package com.lvr.standclock;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Learns how long preparing and starting a video takes, per file and per codec/resolution
+ * class, so playback can start preparing just early enough. Each latency keeps an EWMA of
+ * the mean and of the absolute deviation; the lead time is mean + DEVIATION_FACTOR * deviation,
+ * roughly the 95th percentile, plus a safety margin. A file without samples uses its class,
+ * a class without samples the caller's default. Thread safe. Pure Java, times in milliseconds.
+ */
+public class LeadTimeEstimator {
+
+    public static final int PREPARE = 0;
+    public static final int START = 1;
+
+    // "LEAD"
+    private static final int MAGIC = 0x4c454144;
+    private static final int VERSION = 1;
+
+    private static final float ALPHA = 0.25f;
+    private static final float DEVIATION_FACTOR = 3f;
+    static final long SAFETY_MARGIN = 200;
+    private static final long MAX_LEAD = 10000;
+
+    private static final class Estimate {
+        float mean;
+        float deviation;
+        int samples;
+
+        Estimate copy() {
+            Estimate copy = new Estimate();
+            copy.mean = mean;
+            copy.deviation = deviation;
+            copy.samples = samples;
+            return copy;
+        }
+
+        void add(long latency) {
+            if (samples == 0) {
+                mean = latency;
+                // Unknown spread, assume a wide one
+                deviation = latency / 2f;
+            } else {
+                float error = latency - mean;
+                mean += ALPHA * error;
+                deviation += ALPHA * (Math.abs(error) - deviation);
+            }
+            samples++;
+        }
+
+        long getBound() {
+            return (long) Math.ceil(mean + DEVIATION_FACTOR * deviation);
+        }
+    }
+
+    private final Map<String, Estimate> estimates = new HashMap<>();
+    private boolean dirty = false;
+
+    /**
+     * Codec/resolution class of a video, e.g. "video/hevc@2160"
+     */
+    public static String classOf(VideoMetadata metadata) {
+        if (metadata == null || metadata.getMime().isEmpty()) {
+            return "unknown";
+        }
+        int lines = Math.min(metadata.getWidth(), metadata.getHeight());
+        int bucket = lines >= 2160 ? 2160 : lines >= 1440 ? 1440 : lines >= 1080 ? 1080 : lines >= 720 ? 720 : 480;
+        return metadata.getMime() + "@" + bucket;
+    }
+
+    public synchronized void record(int kind, String path, String videoClass, long latency) {
+        if (latency < 0) {
+            return;
+        }
+        get(key(kind, "file", path)).add(latency);
+        get(key(kind, "class", videoClass)).add(latency);
+        dirty = true;
+    }
+
+    /**
+     * @return how long before it is needed the work should start, defaultLead without samples
+     */
+    public synchronized long getLead(int kind, String path, String videoClass, long defaultLead) {
+        Estimate estimate = estimates.get(key(kind, "file", path));
+        if (estimate == null) {
+            estimate = estimates.get(key(kind, "class", videoClass));
+        }
+        if (estimate == null) {
+            return defaultLead;
+        }
+        return Math.min(MAX_LEAD, estimate.getBound() + SAFETY_MARGIN);
+    }
+
+    public synchronized int getSampleCount(int kind, String path) {
+        Estimate estimate = estimates.get(key(kind, "file", path));
+        return estimate != null ? estimate.samples : 0;
+    }
+
+    private Estimate get(String key) {
+        Estimate estimate = estimates.get(key);
+        if (estimate == null) {
+            estimate = new Estimate();
+            estimates.put(key, estimate);
+        }
+        return estimate;
+    }
+
+    private static String key(int kind, String scope, String name) {
+        return kind + "/" + scope + "/" + name;
+    }
+
+    /**
+     * @return the path of a per file key, null for a class key
+     */
+    private static String pathOf(String key) {
+        int start = key.indexOf('/') + 1;
+        return key.startsWith("file/", start) ? key.substring(start + "file/".length()) : null;
+    }
+
+    /**
+     * Drop the per file estimates of videos that are not in knownPaths any more, class
+     * estimates are kept. An empty knownPaths keeps everything, the catalog is not known yet.
+     */
+    private void prune(Collection<String> knownPaths) {
+        if (knownPaths.isEmpty()) {
+            return;
+        }
+        Set<String> known = new HashSet<>(knownPaths);
+        Iterator<String> keys = estimates.keySet().iterator();
+        while (keys.hasNext()) {
+            String path = pathOf(keys.next());
+            if (path != null && !known.contains(path)) {
+                keys.remove();
+                dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Add the estimates of a file written by save(), a missing or damaged file is ignored
+     */
+    public void load(File file) {
+        if (!file.exists()) {
+            return;
+        }
+
+        Map<String, Estimate> loaded = new HashMap<>();
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                Estimate estimate = new Estimate();
+                estimate.mean = in.readFloat();
+                estimate.deviation = in.readFloat();
+                estimate.samples = in.readInt();
+                loaded.put(key, estimate);
+            }
+        } catch (IOException e) {
+            return;
+        } finally {
+            closeQuietly(in);
+        }
+
+        synchronized (this) {
+            for (Map.Entry<String, Estimate> entry : loaded.entrySet()) {
+                // Samples recorded since startup are newer
+                if (!estimates.containsKey(entry.getKey())) {
+                    estimates.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the estimates if they changed, the file is replaced atomically. Per file
+     * estimates of videos not in knownPaths are dropped first so the file does not grow
+     * with every video that was ever played.
+     */
+    public void save(File file, Collection<String> knownPaths) throws IOException {
+        Map<String, Estimate> snapshot = new HashMap<>();
+        synchronized (this) {
+            prune(knownPaths);
+            if (!dirty) {
+                return;
+            }
+            for (Map.Entry<String, Estimate> entry : estimates.entrySet()) {
+                snapshot.put(entry.getKey(), entry.getValue().copy());
+            }
+            dirty = false;
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, Estimate> entry : snapshot.entrySet()) {
+                Estimate estimate = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeFloat(estimate.mean);
+                out.writeFloat(estimate.deviation);
+                out.writeInt(estimate.samples);
+            }
+            out.close();
+            out = null;
+        } finally {
+            closeQuietly(out);
+        }
+
+        if (!temp.renameTo(file)) {
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.lvr.standclock;
+
+import android.graphics.Bitmap;
+import android.media.MediaMetadataRetriever;
+import android.os.Build;
+import android.util.Log;
+
+/**
+ * Derives the brightness of a video from a few frames spread over its duration, decoded at
+ * thumbnail size. Blocking, runs on a background thread and asks its Throttle before every
+ * frame so it can step aside while playback needs the decoder.
+ */
+public class LuminanceAnalyzer {
+
+    private static final String TAG = "LuminanceAnalyzer";
+
+    private static final int FRAME_COUNT = 5;
+    // Frames are scaled into this square, a few thousand pixels are plenty for a histogram
+    private static final int SAMPLE_SIZE = 64;
+
+    public interface Throttle {
+        /**
+         * Block until the next frame may be decoded
+         *
+         * @return false to abort the analysis
+         */
+        boolean awaitTurn();
+    }
+
+    private final LuminanceStats stats = new LuminanceStats();
+    private int[] pixels = new int[SAMPLE_SIZE * SAMPLE_SIZE];
+
+    /**
+     * @return brightness target, or VideoMetadata.BRIGHTNESS_UNSET if aborted or nothing could be decoded
+     */
+    public float analyze(String path, int durationMs, Throttle throttle) {
+        stats.reset();
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            retriever.setDataSource(path);
+            for (int i = 0; i < FRAME_COUNT; i++) {
+                if (!throttle.awaitTurn()) {
+                    return VideoMetadata.BRIGHTNESS_UNSET;
+                }
+                long timeUs = durationMs * 1000L * (i + 1) / (FRAME_COUNT + 1);
+                sampleFrame(retriever, timeUs);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Cannot analyze " + path + ": " + e.getMessage());
+        } finally {
+            try {
+                retriever.release();
+            } catch (Exception e) {
+                // ignore
+            }
+        }
+
+        if (stats.getSampleCount() == 0) {
+            return VideoMetadata.BRIGHTNESS_UNSET;
+        }
+        float target = stats.getBrightnessTarget();
+        Log.d(TAG, path + ": mean " + stats.getMean() + ", p95 " + stats.getPercentile(0.95f)
+                + " -> brightness " + target);
+        return target;
+    }
+
+    private void sampleFrame(MediaMetadataRetriever retriever, long timeUs) {
+        Bitmap frame;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+            frame = retriever.getScaledFrameAtTime(timeUs, MediaMetadataRetriever.OPTION_CLOSEST_SYNC,
+                    SAMPLE_SIZE, SAMPLE_SIZE);
+        } else {
+            Bitmap full = retriever.getFrameAtTime(timeUs, MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+            frame = full != null ? Bitmap.createScaledBitmap(full, SAMPLE_SIZE, SAMPLE_SIZE, true) : null;
+            if (full != null && full != frame) {
+                full.recycle();
+            }
+        }
+        if (frame == null) {
+            return;
+        }
+
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        if (pixels.length < width * height) {
+            pixels = new int[width * height];
+        }
+        frame.getPixels(pixels, 0, width, 0, 0, width, height);
+        frame.recycle();
+        stats.addPixels(pixels, 0, width * height);
+    }
+}
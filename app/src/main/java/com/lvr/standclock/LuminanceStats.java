@@ -0,0 +1,93 @@
+package com.lvr.standclock;
+
+/**
+ * Luminance histogram of sampled video frames and the brightness (layer alpha) that brings
+ * the video to a comfortable level. Bright clips are dimmed, dark ones stay at full
+ * brightness, the layer can only dim. Pure Java.
+ */
+public class LuminanceStats {
+
+    private static final int LEVELS = 256;
+
+    // Mean luminance the dimmed video should not exceed
+    static final float TARGET_MEAN = 0.45f;
+    // Highlights (HIGHLIGHT_PERCENTILE) should not exceed this either
+    static final float TARGET_HIGHLIGHT = 0.9f;
+    static final float HIGHLIGHT_PERCENTILE = 0.95f;
+
+    private final int[] histogram = new int[LEVELS];
+    private long sampleCount;
+    private long lumaSum;
+
+    /**
+     * Add ARGB pixels, alpha is ignored
+     */
+    public void addPixels(int[] pixels, int offset, int count) {
+        for (int i = offset; i < offset + count; i++) {
+            int color = pixels[i];
+            int r = (color >> 16) & 0xff;
+            int g = (color >> 8) & 0xff;
+            int b = color & 0xff;
+            // Rec. 601 weights in 8 bit fixed point
+            int luma = (r * 77 + g * 150 + b * 29) >> 8;
+            histogram[luma]++;
+            lumaSum += luma;
+        }
+        sampleCount += count;
+    }
+
+    public void reset() {
+        for (int i = 0; i < LEVELS; i++) {
+            histogram[i] = 0;
+        }
+        sampleCount = 0;
+        lumaSum = 0;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return mean luminance 0..1
+     */
+    public float getMean() {
+        return sampleCount == 0 ? 0 : lumaSum / (float) sampleCount / (LEVELS - 1);
+    }
+
+    /**
+     * @return luminance 0..1 that the given fraction of samples is at or below
+     */
+    public float getPercentile(float fraction) {
+        if (sampleCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * sampleCount);
+        long seen = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            seen += histogram[level];
+            if (seen >= rank) {
+                return level / (float) (LEVELS - 1);
+            }
+        }
+        return 1f;
+    }
+
+    public float getBrightnessTarget() {
+        if (sampleCount == 0) {
+            return 1f;
+        }
+        return brightnessFor(getMean(), getPercentile(HIGHLIGHT_PERCENTILE));
+    }
+
+    static float brightnessFor(float mean, float highlight) {
+        float brightness = 1f;
+        if (mean > 0) {
+            brightness = Math.min(brightness, TARGET_MEAN / mean);
+        }
+        if (highlight > 0) {
+            brightness = Math.min(brightness, TARGET_HIGHLIGHT / highlight);
+        }
+        return brightness;
+    }
+}
@@ -4,10 +4,16 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.os.BatteryManager;
+import android.os.Build;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.util.Log;
+import android.view.FrameMetrics;
 import android.view.KeyEvent;
 import android.view.View;
+import android.view.ViewTreeObserver;
+import android.view.Window;
 
 import android.app.Activity;
 import android.content.IntentFilter;
@@ -26,10 +32,13 @@ public class MainActivity extends Activity {
 
     private ClockView clockView;
     private SpiderView spiderView;
+    private ParticleOverlayView particleView;
 
     private static final String TAG = "MainActivity";
     private static final String VIDEO_FOLDER = "Movies";
+    private static final String VIDEO_INDEX_FILE = "video_index.bin";
     private CrossFadeVideoView videoView;
+    private VideoIndexer videoIndexer;
 
     // Sunrise/Sunset calculation instance
     private SunriseSunsetCalculation sunCalc;
@@ -39,9 +48,27 @@ public class MainActivity extends Activity {
     private Runnable updateRunnable;
     private static final long UPDATE_INTERVAL = 60000; // Check every minute
 
+    // Animate overlays on their own render thread instead of the main thread
+    private static final boolean OVERLAY_RENDER_THREAD = false;
+
+    // Blend the videos in one GL pass instead of stacking two TextureView layers. Its crossfade
+    // keeps ramping through main thread stalls, TextureView fades are stepped on the main
+    // thread. Opt-in until the fade logs of both paths have been compared on devices.
+    private static final boolean VIDEO_GL_COMPOSITOR = false;
+
+    // Decode with MediaCodec, which pre-rolls the next video's first frame, instead of MediaPlayer
+    private static final boolean VIDEO_MEDIACODEC_ENGINE = false;
+
+    // Window frame times, to compare the video composition paths
+    private static final int FRAME_STATS_LOG_FRAMES = 600;
+    private final FrameStats windowFrameStats = new FrameStats("Window");
+    private HandlerThread frameMetricsThread;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        // Touch the trace early, on old devices its load time stands in for the process start
+        StartupTrace.getProcessStartUptime();
         //setContentView(R.layout.activity_main);
         requestWindowFeature(android.view.Window.FEATURE_NO_TITLE);
         getWindow().setFlags(WindowManager.LayoutParams.FLAG_FULLSCREEN | WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON,
@@ -101,9 +128,13 @@ public class MainActivity extends Activity {
         FrameLayout container = new FrameLayout(this);
 
         // Create and add video background view (bottom layer)
-        videoView = new CrossFadeVideoView(this);
+        videoView = new CrossFadeVideoView(this, VIDEO_GL_COMPOSITOR, VIDEO_MEDIACODEC_ENGINE);
         container.addView(videoView);
 
+        // Seasonal particles, between the video and the clock
+        particleView = new ParticleOverlayView(this);
+        container.addView(particleView);
+
         // Create and add clock view (top layer)
         clockView = new ClockView(this);
         container.addView(clockView);
@@ -111,8 +142,37 @@ public class MainActivity extends Activity {
         //Spider view
         spiderView = new SpiderView(this);
         container.addView(spiderView);
+        if (OVERLAY_RENDER_THREAD) {
+            OverlayTextureView spiderOverlay = new OverlayTextureView(this);
+            container.addView(spiderOverlay);
+            spiderView.setRenderTarget(spiderOverlay);
+        }
 
         setContentView(container);
+        trackWindowFrameTimes();
+
+        // Startup timing: first frame now, fully ready once the background asset loads are delivered
+        final View decorView = getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            @Override
+            public void onDraw() {
+                StartupTrace.markFirstFrame();
+                final ViewTreeObserver.OnDrawListener listener = this;
+                // Listeners can't be removed from inside the draw callback
+                decorView.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        decorView.getViewTreeObserver().removeOnDrawListener(listener);
+                    }
+                });
+            }
+        });
+        AssetLoader.getInstance(this).whenReady(new Runnable() {
+            @Override
+            public void run() {
+                StartupTrace.markReady();
+            }
+        });
 
         // Always load video files - CrossFadeVideoView will decide whether to play them
         loadVideo();
@@ -176,6 +236,10 @@ public class MainActivity extends Activity {
             videoView.SetDisplayMode(isDay, calendarMode);
         }
 
+        if (particleView != null) {
+            particleView.SetDisplayMode(isDay, calendarMode);
+        }
+
         if (spiderView != null) {
             spiderView.SetDisplayMode(isDay, calendarMode);
         }
@@ -193,9 +257,48 @@ public class MainActivity extends Activity {
         if (videoView != null) {
             videoView.cleanup();
         }
+        if (videoIndexer != null) {
+            videoIndexer.release();
+        }
+        if (frameMetricsThread != null) {
+            frameMetricsThread.quit();
+        }
         unregisterReceiver(batteryReceiver);
     }
 
+    /**
+     * Log window frame times, with the TextureView video layers they include the layer composition.
+     * The GL compositor logs its own draw times separately.
+     */
+    private void trackWindowFrameTimes() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+
+        frameMetricsThread = new HandlerThread("FrameMetrics");
+        frameMetricsThread.start();
+        getWindow().addOnFrameMetricsAvailableListener(new Window.OnFrameMetricsAvailableListener() {
+            @Override
+            public void onFrameMetricsAvailable(Window window, FrameMetrics metrics, int dropCountSinceLastInvocation) {
+                long intendedVsync = metrics.getMetric(FrameMetrics.INTENDED_VSYNC_TIMESTAMP);
+                long vsync = metrics.getMetric(FrameMetrics.VSYNC_TIMESTAMP);
+                long total = metrics.getMetric(FrameMetrics.TOTAL_DURATION);
+                windowFrameStats.record(intendedVsync, vsync, intendedVsync + total);
+                if (windowFrameStats.getFrameCount() % FRAME_STATS_LOG_FRAMES == 0) {
+                    Log.d(TAG, windowFrameStats.toString() + (VIDEO_GL_COMPOSITOR ? " (GL compositor)" : " (TextureView layers)"));
+                }
+            }
+        }, new Handler(frameMetricsThread.getLooper()));
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (spiderView != null) {
+            spiderView.onTrimMemory(level);
+        }
+    }
+
     @Override
     public boolean onKeyDown(int keyCode, KeyEvent event) {
         if (keyCode == KeyEvent.KEYCODE_VOLUME_DOWN) {
@@ -224,8 +327,6 @@ public class MainActivity extends Activity {
             // Update the custom view
             if (clockView != null) {
                 clockView.setBatteryLevel(isCharging ? -1 : batteryLevel);
-
-                clockView.postInvalidate();
             }
         }
 
@@ -260,7 +361,7 @@ public class MainActivity extends Activity {
                 List<String> videoPaths = new ArrayList<>();
 
                 for (File file : videoFiles) {
-                    Log.d(TAG, "Found file: " + file.getName() + " (" + file.length() + " bytes)");
+                    Log.d(TAG, "Found file: " + file.getName());
                     String name = file.getName().toLowerCase();
                     if (name.endsWith(".mov") || name.endsWith(".mp4") ||
                             name.endsWith(".3gp") || name.endsWith(".mkv")) {
@@ -270,6 +371,25 @@ public class MainActivity extends Activity {
                 }
 
                 if (!videoPaths.isEmpty()) {
+                    // Durations and brightness from the last run, read and refreshed in the background.
+                    // Videos prepared before the index is loaded use their filename tags.
+                    if (videoIndexer == null) {
+                        videoIndexer = new VideoIndexer(new File(getFilesDir(), VIDEO_INDEX_FILE),
+                                new VideoIndexer.IndexListener() {
+                                    @Override
+                                    public void onIndexLoaded(VideoMetadataIndex index) {
+                                        videoView.setMetadataIndex(index);
+                                    }
+                                });
+                        videoIndexer.setBusySignal(new VideoIndexer.BusySignal() {
+                            @Override
+                            public boolean isBusy() {
+                                return videoView.isTransitionActive();
+                            }
+                        });
+                    }
+                    videoIndexer.update(videoPaths);
+
                     Log.d(TAG, "Setting playlist with " + videoPaths.size() + " videos");
                     videoView.setVideoPlaylist(videoPaths);
                     return;
@@ -0,0 +1,522 @@
+package com.lvr.standclock;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Surface;
+
+import java.nio.ByteBuffer;
+
+/**
+ * VideoEngine on top of MediaExtractor + MediaCodec, decoding on its own thread.
+ * prepare() decodes up to the first frame and renders it, so the surface already shows
+ * the video before start() and playback begins without startup latency. Output buffers
+ * are held until shortly before their presentation time, anchored to the moment start() was
+ * called, and released with that timestamp so the display presents them on time. The decoder
+ * thread never blocks waiting for a frame. Listener callbacks arrive on the main thread.
+ */
+public class MediaCodecEngine implements VideoEngine {
+
+    private static final String TAG = "MediaCodecEngine";
+
+    private static final long DEQUEUE_TIMEOUT_US = 10000;
+    private static final long PREROLL_TIMEOUT_MS = 3000;
+    // Frames later than this are dropped to catch up
+    private static final long LATE_DROP_NANOS = 50000000L;
+    // Longest wait for a single frame, a larger timestamp gap is not waited out
+    private static final long MAX_FRAME_WAIT_NANOS = 500000000L;
+    // Timed release hands a frame to the display this long before it is due. Before API 21
+    // there is no timed release, frames are released when due.
+    private static final long RELEASE_AHEAD_NANOS = Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+            ? 30000000L : 0;
+
+    private final Handler callbackHandler = new Handler(Looper.getMainLooper());
+    private HandlerThread decoderThread;
+    private Handler decoderHandler;
+
+    private volatile Listener listener;
+    private volatile Surface surface;
+
+    // Read from any thread
+    private volatile boolean playing = false;
+    private volatile int durationMs = 0;
+    private volatile int positionMs = 0;
+
+    // Decoder thread only
+    private MediaExtractor extractor;
+    private MediaCodec codec;
+    private MediaFormat format;
+    // Surface the codec renders to, prepare passes the same one again
+    private Surface codecSurface;
+    private final MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+    // Output buffer dequeued but not due yet, described by bufferInfo
+    private int heldOutputIndex = -1;
+    private boolean looping;
+    private boolean inputDone;
+    private boolean atFirstFrame;
+    private boolean renderingStartPending;
+    private long lastPtsUs;
+    private long anchorPtsUs;
+    private long anchorNanos;
+
+    private final Runnable decodeStep = new Runnable() {
+        @Override
+        public void run() {
+            step();
+        }
+    };
+
+    @Override
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void setSurface(final Surface surface) {
+        this.surface = surface;
+        if (decoderHandler != null) {
+            decoderHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    doSetSurface(surface);
+                }
+            });
+        }
+    }
+
+    private void doSetSurface(Surface surface) {
+        if (codec == null || surface == null || surface == codecSurface) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            codec.setOutputSurface(surface);
+            codecSurface = surface;
+            return;
+        }
+
+        // Before API 23 the surface is fixed by configure: restart the codec on the new
+        // surface and decode back to the frame that was shown
+        long start = SystemClock.uptimeMillis();
+        long positionUs = lastPtsUs;
+        try {
+            heldOutputIndex = -1;
+            codec.stop();
+            codec.configure(format, surface, null, 0);
+            codecSurface = surface;
+            codec.start();
+            extractor.seekTo(positionUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+            inputDone = false;
+            decodeUntil(positionUs);
+            anchorPtsUs = lastPtsUs;
+            anchorNanos = System.nanoTime();
+        } catch (Exception e) {
+            fail("Exception moving to a new surface: " + e.getMessage());
+            return;
+        }
+        Log.d(TAG, "Codec reconfigured for a new surface in " + (SystemClock.uptimeMillis() - start) + "ms");
+    }
+
+    @Override
+    public void prepare(final String path, final boolean looping) {
+        if (decoderThread == null) {
+            decoderThread = new HandlerThread("VideoDecoder", Process.THREAD_PRIORITY_DISPLAY);
+            decoderThread.start();
+            decoderHandler = new Handler(decoderThread.getLooper());
+        }
+        playing = false;
+        decoderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                doPrepare(path, looping);
+            }
+        });
+    }
+
+    private void doPrepare(String path, boolean looping) {
+        releaseDecoder();
+        this.looping = looping;
+        long start = SystemClock.uptimeMillis();
+
+        try {
+            extractor = new MediaExtractor();
+            extractor.setDataSource(path);
+
+            format = null;
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat trackFormat = extractor.getTrackFormat(i);
+                String mime = trackFormat.getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("video/")) {
+                    extractor.selectTrack(i);
+                    format = trackFormat;
+                    break;
+                }
+            }
+            if (format == null) {
+                fail("No video track in " + path);
+                return;
+            }
+
+            durationMs = format.containsKey(MediaFormat.KEY_DURATION)
+                    ? (int) (format.getLong(MediaFormat.KEY_DURATION) / 1000) : 0;
+            positionMs = 0;
+
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codecSurface = surface;
+            codec.configure(format, codecSurface, null, 0);
+            codec.start();
+            inputDone = false;
+
+            // Pre-roll: the first frame is on the surface before anyone calls start()
+            if (!decodeUntil(0)) {
+                fail("No frame decoded from " + path);
+                return;
+            }
+            atFirstFrame = true;
+        } catch (Exception e) {
+            fail("Exception preparing " + path + ": " + e.getMessage());
+            return;
+        }
+
+        Log.d(TAG, "Prepared with first frame in " + (SystemClock.uptimeMillis() - start) + "ms");
+        final int duration = durationMs;
+        callbackHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Listener current = listener;
+                if (current != null) {
+                    current.onPrepared(duration);
+                }
+            }
+        });
+    }
+
+    /**
+     * Decode, dropping frames before minPtsUs, and render the first frame at or after it
+     *
+     * @return false if the stream ended or nothing was decoded in time
+     */
+    private boolean decodeUntil(long minPtsUs) {
+        long deadline = SystemClock.uptimeMillis() + PREROLL_TIMEOUT_MS;
+        while (SystemClock.uptimeMillis() < deadline) {
+            feedInput();
+            int index = codec.dequeueOutputBuffer(bufferInfo, DEQUEUE_TIMEOUT_US);
+            if (index < 0) {
+                continue;
+            }
+
+            boolean endOfStream = (bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+            if (bufferInfo.size > 0 && bufferInfo.presentationTimeUs >= minPtsUs) {
+                codec.releaseOutputBuffer(index, true);
+                setPosition(bufferInfo.presentationTimeUs);
+                return true;
+            }
+            codec.releaseOutputBuffer(index, false);
+            if (endOfStream) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private void feedInput() {
+        while (!inputDone) {
+            int index = codec.dequeueInputBuffer(0);
+            if (index < 0) {
+                return;
+            }
+
+            int size = extractor.readSampleData(getInputBuffer(index), 0);
+            if (size < 0) {
+                codec.queueInputBuffer(index, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                inputDone = true;
+            } else {
+                codec.queueInputBuffer(index, 0, size, extractor.getSampleTime(), 0);
+                extractor.advance();
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private ByteBuffer getInputBuffer(int index) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return codec.getInputBuffer(index);
+        }
+        return codec.getInputBuffers()[index];
+    }
+
+    private void setPosition(long ptsUs) {
+        lastPtsUs = ptsUs;
+        positionMs = (int) (ptsUs / 1000);
+    }
+
+    @Override
+    public void start() {
+        if (decoderHandler == null) {
+            return;
+        }
+        playing = true;
+        decoderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (codec == null || !playing) {
+                    return;
+                }
+                // The frame on screen is presented now, the following ones relative to it
+                anchorPtsUs = lastPtsUs;
+                anchorNanos = System.nanoTime();
+                atFirstFrame = false;
+                renderingStartPending = true;
+                decoderHandler.removeCallbacks(decodeStep);
+                decoderHandler.post(decodeStep);
+            }
+        });
+    }
+
+    private void step() {
+        if (!playing || codec == null) {
+            return;
+        }
+
+        long waitNanos = 0;
+        try {
+            feedInput();
+            int index = heldOutputIndex;
+            heldOutputIndex = -1;
+            if (index < 0) {
+                index = codec.dequeueOutputBuffer(bufferInfo, DEQUEUE_TIMEOUT_US);
+            }
+            if (index >= 0) {
+                waitNanos = presentOutput(index);
+                if (waitNanos > 0) {
+                    heldOutputIndex = index;
+                }
+            }
+        } catch (Exception e) {
+            fail("Decoding error: " + e.getMessage());
+            return;
+        }
+
+        // pause() and stop() take effect at the next step, instead of behind a sleeping thread
+        if (playing) {
+            if (waitNanos > 0) {
+                decoderHandler.postDelayed(decodeStep, Math.max(1, waitNanos / 1000000));
+            } else {
+                decoderHandler.post(decodeStep);
+            }
+        }
+    }
+
+    /**
+     * Release the output buffer if it is due, from API 21 on with its presentation time
+     *
+     * @return nanoseconds until the buffer is due, it was not released then
+     */
+    private long presentOutput(int index) {
+        boolean endOfStream = (bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+
+        if (bufferInfo.size > 0) {
+            long presentNanos = anchorNanos + (bufferInfo.presentationTimeUs - anchorPtsUs) * 1000;
+            long earlyNanos = presentNanos - System.nanoTime();
+            if (earlyNanos > MAX_FRAME_WAIT_NANOS) {
+                // Timestamp gap, continue from here instead of waiting it out
+                anchorNanos -= earlyNanos - MAX_FRAME_WAIT_NANOS;
+                presentNanos -= earlyNanos - MAX_FRAME_WAIT_NANOS;
+                earlyNanos = MAX_FRAME_WAIT_NANOS;
+            }
+            if (earlyNanos > RELEASE_AHEAD_NANOS) {
+                return earlyNanos - RELEASE_AHEAD_NANOS;
+            }
+
+            boolean render = earlyNanos > -LATE_DROP_NANOS;
+            if (render && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                codec.releaseOutputBuffer(index, presentNanos);
+            } else {
+                codec.releaseOutputBuffer(index, render);
+            }
+            setPosition(bufferInfo.presentationTimeUs);
+            if (render && renderingStartPending) {
+                renderingStartPending = false;
+                notifyRenderingStart();
+            }
+        } else {
+            codec.releaseOutputBuffer(index, false);
+        }
+
+        if (endOfStream) {
+            onEndOfStream();
+        }
+        return 0;
+    }
+
+    private void onEndOfStream() {
+        if (looping) {
+            extractor.seekTo(0, MediaExtractor.SEEK_TO_CLOSEST_SYNC);
+            codec.flush();
+            inputDone = false;
+            anchorPtsUs = 0;
+            anchorNanos = System.nanoTime();
+            return;
+        }
+
+        playing = false;
+        callbackHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Listener current = listener;
+                if (current != null) {
+                    current.onCompletion();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void pause() {
+        playing = false;
+    }
+
+    @Override
+    public void seekTo(final int msec) {
+        if (decoderHandler == null) {
+            return;
+        }
+        decoderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                doSeek(msec);
+            }
+        });
+    }
+
+    private void doSeek(int msec) {
+        if (codec == null) {
+            return;
+        }
+
+        // Seeking to the start of a freshly prepared video: the first frame is already on screen
+        if (!(msec == 0 && atFirstFrame)) {
+            try {
+                long targetUs = msec * 1000L;
+                heldOutputIndex = -1;
+                extractor.seekTo(targetUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+                codec.flush();
+                inputDone = false;
+                decodeUntil(targetUs);
+                anchorPtsUs = lastPtsUs;
+                anchorNanos = System.nanoTime();
+            } catch (Exception e) {
+                fail("Seek error: " + e.getMessage());
+                return;
+            }
+        }
+
+        callbackHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Listener current = listener;
+                if (current != null) {
+                    current.onSeekComplete();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void stop() {
+        playing = false;
+        if (decoderHandler != null) {
+            decoderHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    releaseDecoder();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void release() {
+        stop();
+        if (decoderThread != null) {
+            // Quits after the queued release ran
+            final HandlerThread thread = decoderThread;
+            decoderHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    thread.quit();
+                }
+            });
+            decoderThread = null;
+            decoderHandler = null;
+        }
+    }
+
+    private void releaseDecoder() {
+        if (codec != null) {
+            try {
+                codec.stop();
+            } catch (Exception e) {
+                Log.e(TAG, "Error stopping codec: " + e.getMessage());
+            }
+            codec.release();
+            codec = null;
+        }
+        if (extractor != null) {
+            extractor.release();
+            extractor = null;
+        }
+        format = null;
+        codecSurface = null;
+        heldOutputIndex = -1;
+        atFirstFrame = false;
+    }
+
+    private void notifyRenderingStart() {
+        callbackHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Listener current = listener;
+                if (current != null) {
+                    current.onRenderingStart();
+                }
+            }
+        });
+    }
+
+    private void fail(final String message) {
+        Log.e(TAG, message);
+        playing = false;
+        releaseDecoder();
+        callbackHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Listener current = listener;
+                if (current != null) {
+                    current.onError(message);
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    @Override
+    public int getDuration() {
+        return durationMs;
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        return positionMs;
+    }
+}
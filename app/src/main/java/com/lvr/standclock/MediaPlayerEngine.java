@@ -0,0 +1,156 @@
+package com.lvr.standclock;
+
+import android.media.MediaPlayer;
+import android.view.Surface;
+
+import java.io.IOException;
+
+/**
+ * VideoEngine on top of MediaPlayer. Listener callbacks arrive on the looper of the thread
+ * that first prepared a video.
+ */
+public class MediaPlayerEngine implements VideoEngine {
+
+    private MediaPlayer mediaPlayer;
+    private Surface surface;
+    private volatile Listener listener;
+
+    @Override
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void setSurface(Surface surface) {
+        this.surface = surface;
+        if (mediaPlayer != null) {
+            mediaPlayer.setSurface(surface);
+        }
+    }
+
+    @Override
+    public void prepare(String path, boolean looping) throws IOException {
+        if (mediaPlayer != null) {
+            mediaPlayer.reset();
+        } else {
+            mediaPlayer = createPlayer();
+        }
+
+        mediaPlayer.setDataSource(path);
+        mediaPlayer.setSurface(surface);
+        mediaPlayer.setVolume(0f, 0f);
+        mediaPlayer.setLooping(looping);
+        mediaPlayer.prepareAsync();
+    }
+
+    private MediaPlayer createPlayer() {
+        MediaPlayer player = new MediaPlayer();
+
+        player.setOnPreparedListener(new MediaPlayer.OnPreparedListener() {
+            @Override
+            public void onPrepared(MediaPlayer mp) {
+                Listener current = listener;
+                if (current != null) {
+                    current.onPrepared(mp.getDuration());
+                }
+            }
+        });
+
+        player.setOnErrorListener(new MediaPlayer.OnErrorListener() {
+            @Override
+            public boolean onError(MediaPlayer mp, int what, int extra) {
+                Listener current = listener;
+                if (current != null) {
+                    current.onError(what + ", " + extra);
+                }
+                return true;
+            }
+        });
+
+        player.setOnCompletionListener(new MediaPlayer.OnCompletionListener() {
+            @Override
+            public void onCompletion(MediaPlayer mp) {
+                Listener current = listener;
+                if (current != null) {
+                    current.onCompletion();
+                }
+            }
+        });
+
+        player.setOnSeekCompleteListener(new MediaPlayer.OnSeekCompleteListener() {
+            @Override
+            public void onSeekComplete(MediaPlayer mp) {
+                Listener current = listener;
+                if (current != null) {
+                    current.onSeekComplete();
+                }
+            }
+        });
+
+        player.setOnInfoListener(new MediaPlayer.OnInfoListener() {
+            @Override
+            public boolean onInfo(MediaPlayer mp, int what, int extra) {
+                Listener current = listener;
+                if (what == MediaPlayer.MEDIA_INFO_VIDEO_RENDERING_START && current != null) {
+                    current.onRenderingStart();
+                    return true;
+                }
+                return false;
+            }
+        });
+
+        return player;
+    }
+
+    @Override
+    public void start() {
+        if (mediaPlayer != null) {
+            mediaPlayer.start();
+        }
+    }
+
+    @Override
+    public void pause() {
+        if (mediaPlayer != null && mediaPlayer.isPlaying()) {
+            mediaPlayer.pause();
+        }
+    }
+
+    @Override
+    public void seekTo(int msec) {
+        if (mediaPlayer != null) {
+            mediaPlayer.seekTo(msec);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (mediaPlayer != null && mediaPlayer.isPlaying()) {
+            mediaPlayer.stop();
+        }
+    }
+
+    @Override
+    public void release() {
+        if (mediaPlayer != null) {
+            stop();
+            mediaPlayer.release();
+            mediaPlayer = null;
+        }
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return mediaPlayer != null && mediaPlayer.isPlaying();
+    }
+
+    @Override
+    public int getDuration() {
+        return mediaPlayer != null ? mediaPlayer.getDuration() : 0;
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        return mediaPlayer != null ? mediaPlayer.getCurrentPosition() : 0;
+    }
+}
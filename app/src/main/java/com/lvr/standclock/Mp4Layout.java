@@ -0,0 +1,172 @@
+package com.lvr.standclock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Top level box layout of an MP4/MOV file, enough to know which bytes a player reads first:
+ * the header boxes including moov, wherever it is, and the start of mdat. Pure Java.
+ */
+public class Mp4Layout {
+
+    // A damaged file shouldn't make us walk it forever
+    private static final int MAX_BOXES = 64;
+    // Header boxes beyond this are not worth warming up
+    private static final long MAX_HEADER_BYTES = 16L * 1024 * 1024;
+
+    public static class Box {
+        public final String type;
+        public final long offset;
+        public final long size;
+
+        Box(String type, long offset, long size) {
+            this.type = type;
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    public static class Range {
+        public final long offset;
+        public final long length;
+
+        public Range(long offset, long length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public String toString() {
+            return offset + "+" + length;
+        }
+    }
+
+    private final long fileSize;
+    private final List<Box> boxes;
+
+    private Mp4Layout(long fileSize, List<Box> boxes) {
+        this.fileSize = fileSize;
+        this.boxes = Collections.unmodifiableList(boxes);
+    }
+
+    /**
+     * Walk the top level boxes, a file that isn't MP4 gives an empty layout
+     */
+    public static Mp4Layout parse(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        List<Box> boxes = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(16);
+
+        long position = 0;
+        while (position + 8 <= fileSize && boxes.size() < MAX_BOXES) {
+            header.clear();
+            header.limit(16);
+            if (readFully(channel, header, position) < 8) {
+                break;
+            }
+            header.flip();
+
+            long size = header.getInt() & 0xffffffffL;
+            String type = readType(header);
+            if (type == null) {
+                break;
+            }
+            if (size == 1) {
+                if (header.remaining() < 8) {
+                    break;
+                }
+                size = header.getLong();
+            } else if (size == 0) {
+                // Box extends to the end of the file
+                size = fileSize - position;
+            }
+            if (size < 8 || position + size > fileSize) {
+                break;
+            }
+
+            boxes.add(new Box(type, position, size));
+            position += size;
+        }
+
+        // Without a moov box this is not an MP4 we understand
+        if (boxes.isEmpty() || find(boxes, "moov") == null) {
+            boxes.clear();
+        }
+        return new Mp4Layout(fileSize, boxes);
+    }
+
+    public boolean isValid() {
+        return !boxes.isEmpty();
+    }
+
+    public List<Box> getBoxes() {
+        return boxes;
+    }
+
+    public Box getBox(String type) {
+        return find(boxes, type);
+    }
+
+    /**
+     * Byte ranges a player reads to prepare and play the first part: all boxes besides
+     * mdat (moov, ftyp, ...) and the first mdatPrefix bytes of mdat. An unknown layout
+     * gives the first mdatPrefix bytes of the file.
+     */
+    public List<Range> getReadAheadRanges(long mdatPrefix) {
+        List<Range> ranges = new ArrayList<>();
+        if (!isValid()) {
+            ranges.add(new Range(0, Math.min(mdatPrefix, fileSize)));
+            return ranges;
+        }
+
+        long headerBytes = 0;
+        for (Box box : boxes) {
+            if (box.type.equals("mdat")) {
+                ranges.add(new Range(box.offset, Math.min(mdatPrefix, box.size)));
+            } else if (!box.type.equals("free") && !box.type.equals("skip")
+                    && headerBytes + box.size <= MAX_HEADER_BYTES) {
+                ranges.add(new Range(box.offset, box.size));
+                headerBytes += box.size;
+            }
+        }
+        return ranges;
+    }
+
+    private static Box find(List<Box> boxes, String type) {
+        for (Box box : boxes) {
+            if (box.type.equals(type)) {
+                return box;
+            }
+        }
+        return null;
+    }
+
+    private static String readType(ByteBuffer header) {
+        char[] type = new char[4];
+        for (int i = 0; i < 4; i++) {
+            int c = header.get() & 0xff;
+            // Box types are printable ASCII
+            if (c < 0x20 || c > 0x7e) {
+                return null;
+            }
+            type[i] = (char) c;
+        }
+        return new String(type);
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+}
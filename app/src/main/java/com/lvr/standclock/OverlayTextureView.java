@@ -0,0 +1,204 @@
+package com.lvr.standclock;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.SurfaceTexture;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Surface;
+import android.view.TextureView;
+
+/**
+ * Transparent overlay that draws on its own render thread, so overlay animations keep their
+ * frame pacing while the main thread is busy with video callbacks and animators.
+ * Frames are paced by the render thread's own Choreographer and drawn with
+ * lockHardwareCanvas (API 23+), older devices fall back to a software canvas.
+ */
+public class OverlayTextureView extends TextureView implements TextureView.SurfaceTextureListener {
+
+    private static final String TAG = "OverlayTextureView";
+
+    private static final int STATS_LOG_FRAMES = 300;
+
+    public interface Overlay {
+        /**
+         * Draw one frame into a cleared canvas, called on the render thread
+         *
+         * @return true if another frame should follow
+         */
+        boolean drawFrame(Canvas canvas, long frameTimeNanos);
+    }
+
+    private volatile Overlay overlay;
+    private volatile Handler renderHandler;
+    private HandlerThread renderThread;
+
+    private final FrameStats frameStats = new FrameStats("OverlayRender");
+
+    // Render thread only
+    private Surface surface;
+    private SurfaceTexture surfaceTexture;
+    private boolean framePosted = false;
+
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            framePosted = false;
+            renderFrame(frameTimeNanos);
+        }
+    };
+
+    private final Runnable scheduleFrame = new Runnable() {
+        @Override
+        public void run() {
+            if (!framePosted && surface != null) {
+                framePosted = true;
+                Choreographer.getInstance().postFrameCallback(frameCallback);
+            }
+        }
+    };
+
+    public OverlayTextureView(Context context) {
+        super(context);
+        init();
+    }
+
+    public OverlayTextureView(Context context, android.util.AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public OverlayTextureView(Context context, android.util.AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init();
+    }
+
+    private void init() {
+        setOpaque(false);
+        setSurfaceTextureListener(this);
+    }
+
+    public void setOverlay(Overlay overlay) {
+        this.overlay = overlay;
+        requestRender();
+    }
+
+    /**
+     * Start drawing frames until the overlay returns false, can be called from any thread
+     */
+    public void requestRender() {
+        Handler handler = renderHandler;
+        if (handler != null) {
+            handler.post(scheduleFrame);
+        }
+    }
+
+    /**
+     * Run a task on the render thread, e.g. to release resources the overlay draws with.
+     * Without a render thread the task runs right away on the calling thread.
+     */
+    public void queueEvent(Runnable event) {
+        Handler handler = renderHandler;
+        if (handler == null || !handler.post(event)) {
+            event.run();
+        }
+    }
+
+    public FrameStats getFrameStats() {
+        return frameStats;
+    }
+
+    private void renderFrame(long frameTimeNanos) {
+        if (surface == null) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean more = false;
+        Canvas canvas = null;
+        try {
+            canvas = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
+                    ? surface.lockHardwareCanvas() : surface.lockCanvas(null);
+            canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+            Overlay current = overlay;
+            more = current != null && current.drawFrame(canvas, frameTimeNanos);
+        } catch (Exception e) {
+            Log.e(TAG, "Error rendering overlay frame", e);
+        } finally {
+            if (canvas != null) {
+                surface.unlockCanvasAndPost(canvas);
+            }
+        }
+        frameStats.record(frameTimeNanos, start, System.nanoTime());
+
+        if (frameStats.getFrameCount() % STATS_LOG_FRAMES == 0) {
+            Log.d(TAG, frameStats.toString());
+        }
+
+        if (more) {
+            scheduleFrame.run();
+        } else {
+            frameStats.markIdle();
+        }
+    }
+
+    @Override
+    public void onSurfaceTextureAvailable(final SurfaceTexture texture, int width, int height) {
+        renderThread = new HandlerThread("OverlayRender", Process.THREAD_PRIORITY_DISPLAY);
+        renderThread.start();
+        Handler handler = new Handler(renderThread.getLooper());
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                surfaceTexture = texture;
+                surface = new Surface(texture);
+            }
+        });
+        renderHandler = handler;
+        requestRender();
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture texture, int width, int height) {
+        requestRender();
+    }
+
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture texture) {
+        final Handler handler = renderHandler;
+        final HandlerThread thread = renderThread;
+        renderHandler = null;
+        renderThread = null;
+        if (handler == null) {
+            return true;
+        }
+
+        // The texture is released by the render thread once it stopped drawing into it
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (framePosted) {
+                    framePosted = false;
+                    Choreographer.getInstance().removeFrameCallback(frameCallback);
+                }
+                frameStats.markIdle();
+                surface.release();
+                surface = null;
+                surfaceTexture.release();
+                surfaceTexture = null;
+                thread.quit();
+            }
+        });
+        return false;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture texture) {
+    }
+}
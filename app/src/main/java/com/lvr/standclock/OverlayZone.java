@@ -0,0 +1,132 @@
+package com.lvr.standclock;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.os.Build;
+
+/**
+ * One independently cached area of an overlay view (time, date, battery, ...).
+ * The zone content is recorded into a RenderNode (API 29+) or rendered into a bitmap and
+ * only re-rendered after markDirty(), all other redraws of the host view just replay the cache.
+ */
+public abstract class OverlayZone {
+
+    public enum Cadence {
+        SECOND,
+        MINUTE,
+        DAY,
+        BATTERY
+    }
+
+    public final Cadence cadence;
+    public final Rect bounds = new Rect();
+
+    private boolean dirty = true;
+    private boolean visible = true;
+
+    private Bitmap cacheBitmap;
+    private Canvas cacheCanvas;
+    private Object renderNode;
+
+    protected OverlayZone(Cadence cadence) {
+        this.cadence = cadence;
+    }
+
+    /**
+     * Compute bounds for the given view size
+     */
+    public abstract void layout(int width, int height);
+
+    /**
+     * Draw the zone content, coordinates are the same as in the host view
+     */
+    protected abstract void render(Canvas canvas);
+
+    public void markDirty() {
+        dirty = true;
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+        dirty = true;
+    }
+
+    public void draw(Canvas canvas) {
+        if (!visible || bounds.isEmpty()) {
+            return;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && canvas.isHardwareAccelerated()) {
+            drawRenderNode(canvas);
+        } else {
+            drawBitmapCache(canvas);
+        }
+        dirty = false;
+    }
+
+    private void drawRenderNode(Canvas canvas) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return;
+        }
+
+        RenderNode node = (RenderNode) renderNode;
+        if (node == null) {
+            node = new RenderNode(getClass().getSimpleName());
+            renderNode = node;
+            dirty = true;
+        }
+
+        if (dirty || !node.hasDisplayList()) {
+            node.setPosition(bounds);
+            RecordingCanvas recordingCanvas = node.beginRecording(bounds.width(), bounds.height());
+            try {
+                recordingCanvas.translate(-bounds.left, -bounds.top);
+                render(recordingCanvas);
+            } finally {
+                node.endRecording();
+            }
+        }
+
+        canvas.drawRenderNode(node);
+    }
+
+    private void drawBitmapCache(Canvas canvas) {
+        if (cacheBitmap == null || cacheBitmap.getWidth() != bounds.width() || cacheBitmap.getHeight() != bounds.height()) {
+            releaseCache();
+            cacheBitmap = Bitmap.createBitmap(bounds.width(), bounds.height(), Bitmap.Config.ARGB_8888);
+            cacheCanvas = new Canvas(cacheBitmap);
+            dirty = true;
+        }
+
+        if (dirty) {
+            cacheBitmap.eraseColor(Color.TRANSPARENT);
+            cacheCanvas.save();
+            cacheCanvas.translate(-bounds.left, -bounds.top);
+            render(cacheCanvas);
+            cacheCanvas.restore();
+        }
+
+        canvas.drawBitmap(cacheBitmap, bounds.left, bounds.top, null);
+    }
+
+    public void releaseCache() {
+        if (cacheBitmap != null) {
+            cacheBitmap.recycle();
+            cacheBitmap = null;
+            cacheCanvas = null;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && renderNode != null) {
+            ((RenderNode) renderNode).discardDisplayList();
+        }
+        renderNode = null;
+        dirty = true;
+    }
+}
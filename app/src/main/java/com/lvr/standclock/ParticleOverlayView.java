@@ -0,0 +1,367 @@
+package com.lvr.standclock;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.View;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Seasonal particles (snowflakes for Christmas) drawn from a {@link ParticlePool}.
+ * All sprites come from one atlas bitmap and are drawn with a single drawVertices call.
+ * Hardware accelerated drawVertices needs API 29, older devices draw the sprites one by one
+ * and get fewer of them.
+ */
+public class ParticleOverlayView extends View implements IDisplayMode {
+
+    private static final String TAG = "ParticleOverlayView";
+
+    private static final int SNOW_COUNT = 300;
+    private static final int SNOW_VARIANTS = 4;
+    private static final int CELL_SIZE = 64;
+    private static final float MIN_SNOW_SIZE = 12;
+    private static final float MAX_SNOW_SIZE = 40;
+
+    // Upper bound for a single update step, e.g. after the view was hidden for a while
+    private static final float MAX_STEP_SECONDS = 0.1f;
+    // About 30 fps: a delayed frame callback runs at the first vsync after the delay
+    private static final long FRAME_DELAY_MILLIS = 30;
+    private static final int STATS_FRAMES = 600;
+
+    private final ParticlePool pool = new ParticlePool(SNOW_COUNT);
+    private final float[] vertices = new float[SNOW_COUNT * ParticlePool.FLOATS_PER_SPRITE];
+    private final float[] texCoords = new float[SNOW_COUNT * ParticlePool.FLOATS_PER_SPRITE];
+    private final short[] indices = ParticlePool.buildQuadIndices(SNOW_COUNT);
+    private final Random random = new Random();
+
+    private Bitmap atlas;
+    private final Paint batchPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+    private final Paint spritePaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+    private final Rect spriteSrc = new Rect();
+    private final RectF spriteDst = new RectF();
+    // Area the sprites were drawn in and the area to redraw, invalidate only that
+    private final float[] spriteBounds = new float[4];
+    private final Rect drawnBounds = new Rect();
+    private final Rect dirtyBounds = new Rect();
+
+    private boolean active = false;
+    private boolean attached = false;
+    private boolean windowVisible = true;
+    private boolean frameCallbackPosted = false;
+    private long lastFrameNanos = 0;
+
+    private long drawNanos = 0;
+    private int drawFrames = 0;
+    private long statsStartNanos = 0;
+
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            frameCallbackPosted = false;
+            if (!active) {
+                return;
+            }
+            if (lastFrameNanos != 0) {
+                float dt = Math.min(MAX_STEP_SECONDS, (frameTimeNanos - lastFrameNanos) / 1e9f);
+                step(dt);
+            }
+            lastFrameNanos = frameTimeNanos;
+            invalidateSprites();
+            postFrameCallback();
+        }
+    };
+
+    public ParticleOverlayView(Context context) {
+        super(context);
+        init();
+    }
+
+    public ParticleOverlayView(Context context, android.util.AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public ParticleOverlayView(Context context, android.util.AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init();
+    }
+
+    private void init() {
+        setBackgroundColor(Color.TRANSPARENT);
+    }
+
+    @Override
+    public void SetDisplayMode(boolean isDay, CalendarMode calendarMode) {
+        boolean snow = calendarMode == CalendarMode.Christmas;
+        if (snow == active) {
+            return;
+        }
+        active = snow;
+
+        if (active) {
+            start();
+        } else {
+            stop();
+        }
+    }
+
+    private void start() {
+        if (atlas == null) {
+            atlas = createSnowAtlas();
+            batchPaint.setShader(new BitmapShader(atlas, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+        }
+        pool.clear();
+        if (getWidth() > 0 && getHeight() > 0) {
+            fillPool();
+        }
+        lastFrameNanos = 0;
+        postFrameCallback();
+    }
+
+    private void stop() {
+        removeFrameCallback();
+        pool.clear();
+        drawnBounds.setEmpty();
+        batchPaint.setShader(null);
+        if (atlas != null) {
+            atlas.recycle();
+            atlas = null;
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (active) {
+            pool.clear();
+            fillPool();
+        }
+    }
+
+    /**
+     * Spread the flakes over the whole screen, so it doesn't start with an empty sky
+     */
+    private void fillPool() {
+        int capacity = pool.getCapacity();
+        int count = isBatched() ? capacity : Math.min(capacity, ParticlePool.MAX_UNBATCHED_SPRITES);
+        while (pool.getCount() < count) {
+            int index = pool.spawn(0, 0, 0, 0, 0, 0, 0, 0);
+            respawnSnowflake(index, random.nextFloat() * getHeight());
+        }
+    }
+
+    private void respawnSnowflake(int index, float y) {
+        float size = MIN_SNOW_SIZE + random.nextFloat() * (MAX_SNOW_SIZE - MIN_SNOW_SIZE);
+        // Bigger flakes are closer and fall faster
+        float vy = 30 + size * 2.5f + random.nextFloat() * 20;
+        float vx = -15 + random.nextFloat() * 30;
+        float spin = -45 + random.nextFloat() * 90;
+        pool.set(index, random.nextFloat() * getWidth(), y, vx, vy,
+                random.nextFloat() * 360, spin, size, random.nextInt(SNOW_VARIANTS));
+    }
+
+    private void step(float dt) {
+        pool.update(dt, 0, SNOW_VARIANTS);
+
+        int width = getWidth();
+        int height = getHeight();
+        for (int i = 0; i < pool.getCount(); i++) {
+            float margin = pool.getSize(i);
+            float x = pool.getX(i);
+            if (pool.getY(i) > height + margin) {
+                respawnSnowflake(i, -margin);
+            } else if (x < -margin || x > width + margin) {
+                // Wrap sideways drift around
+                respawnSnowflake(i, pool.getY(i));
+            }
+        }
+    }
+
+    /**
+     * Redraw where the sprites were and where they are now
+     */
+    @SuppressWarnings("deprecation")
+    private void invalidateSprites() {
+        dirtyBounds.set(drawnBounds);
+        drawnBounds.setEmpty();
+        if (pool.getBounds(spriteBounds)) {
+            drawnBounds.set((int) Math.floor(spriteBounds[0]), (int) Math.floor(spriteBounds[1]),
+                    (int) Math.ceil(spriteBounds[2]), (int) Math.ceil(spriteBounds[3]));
+            dirtyBounds.union(drawnBounds);
+        }
+        if (!dirtyBounds.isEmpty()) {
+            invalidate(dirtyBounds);
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (!active || atlas == null || pool.getCount() == 0) {
+            return;
+        }
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q || !canvas.isHardwareAccelerated()) {
+            drawBatched(canvas);
+        } else {
+            drawSprites(canvas);
+        }
+        logDrawTime(SystemClock.elapsedRealtimeNanos() - start);
+    }
+
+    /**
+     * Whether onDraw can use drawVertices, only valid once the view is attached
+     */
+    private boolean isBatched() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q || !isHardwareAccelerated();
+    }
+
+    private void drawBatched(Canvas canvas) {
+        int floats = pool.writeQuads(vertices, texCoords, CELL_SIZE, SNOW_VARIANTS);
+        canvas.drawVertices(Canvas.VertexMode.TRIANGLES, floats, vertices, 0, texCoords, 0,
+                null, 0, indices, 0, pool.getCount() * ParticlePool.INDICES_PER_SPRITE, batchPaint);
+    }
+
+    private void drawSprites(Canvas canvas) {
+        for (int i = 0; i < pool.getCount(); i++) {
+            int frame = pool.getFrame(i);
+            spriteSrc.set(frame * CELL_SIZE, 0, (frame + 1) * CELL_SIZE, CELL_SIZE);
+
+            float x = pool.getX(i);
+            float y = pool.getY(i);
+            float half = pool.getSize(i) / 2;
+            spriteDst.set(x - half, y - half, x + half, y + half);
+
+            canvas.save();
+            canvas.rotate(pool.getAngle(i), x, y);
+            canvas.drawBitmap(atlas, spriteSrc, spriteDst, spritePaint);
+            canvas.restore();
+        }
+    }
+
+    private void logDrawTime(long nanos) {
+        long now = SystemClock.elapsedRealtimeNanos();
+        if (drawFrames == 0) {
+            statsStartNanos = now;
+        }
+        drawNanos += nanos;
+        drawFrames++;
+        if (drawFrames == STATS_FRAMES) {
+            float fps = (STATS_FRAMES - 1) * 1e9f / Math.max(1, now - statsStartNanos);
+            Log.d(TAG, pool.getCount() + (isBatched() ? " batched" : " unbatched")
+                    + " particles, average draw " + (drawNanos / drawFrames / 1000) + "us at "
+                    + String.format(Locale.US, "%.1f", fps) + " fps");
+            drawNanos = 0;
+            drawFrames = 0;
+        }
+    }
+
+    /**
+     * Snowflake variants side by side, white on transparent
+     */
+    private static Bitmap createSnowAtlas() {
+        Bitmap bitmap = Bitmap.createBitmap(CELL_SIZE * SNOW_VARIANTS, CELL_SIZE, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(Color.WHITE);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+
+        float center = CELL_SIZE / 2f;
+        float arm = CELL_SIZE / 2f - 4;
+        for (int variant = 0; variant < SNOW_VARIANTS; variant++) {
+            canvas.save();
+            canvas.translate(variant * CELL_SIZE + center, center);
+            if (variant == 0) {
+                // Soft round flake
+                paint.setAlpha(220);
+                canvas.drawCircle(0, 0, arm / 2, paint);
+            } else {
+                paint.setAlpha(255);
+                paint.setStrokeWidth(variant == 3 ? 4 : 3);
+                for (int i = 0; i < 6; i++) {
+                    canvas.drawLine(0, 0, 0, -arm, paint);
+                    if (variant >= 2) {
+                        // Side branches
+                        float branch = arm * 0.3f;
+                        canvas.drawLine(0, -arm * 0.55f, -branch, -arm * 0.55f - branch, paint);
+                        canvas.drawLine(0, -arm * 0.55f, branch, -arm * 0.55f - branch, paint);
+                    }
+                    canvas.rotate(60);
+                }
+            }
+            canvas.restore();
+        }
+        return bitmap;
+    }
+
+    private void postFrameCallback() {
+        if (!frameCallbackPosted && active && attached && windowVisible && isShown()) {
+            frameCallbackPosted = true;
+            Choreographer.getInstance().postFrameCallbackDelayed(frameCallback, FRAME_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * Stop animating while the view or its window is hidden, continue without a jump
+     */
+    private void onShownChanged() {
+        if (windowVisible && isShown()) {
+            lastFrameNanos = 0;
+            postFrameCallback();
+        } else {
+            removeFrameCallback();
+            // The frame rate stats cover visible runs only
+            drawNanos = 0;
+            drawFrames = 0;
+        }
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        onShownChanged();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        windowVisible = visibility == VISIBLE;
+        onShownChanged();
+    }
+
+    private void removeFrameCallback() {
+        if (frameCallbackPosted) {
+            frameCallbackPosted = false;
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        attached = true;
+        lastFrameNanos = 0;
+        postFrameCallback();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        attached = false;
+        removeFrameCallback();
+        super.onDetachedFromWindow();
+    }
+}
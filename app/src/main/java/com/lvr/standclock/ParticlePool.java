@@ -0,0 +1,230 @@
+package com.lvr.standclock;
+
+/**
+ * Fixed capacity pool of sprites kept in parallel primitive arrays, so updating and
+ * batching hundreds of them allocates nothing. A killed sprite is replaced by the last live one.
+ * Pure Java, the sprites are drawn by ParticleOverlayView.
+ */
+public class ParticlePool {
+
+    // Quads are indexed with shorts, keep the highest vertex index below 32768
+    public static final int MAX_CAPACITY = 8192;
+
+    public static final int FLOATS_PER_SPRITE = 8;
+    public static final int INDICES_PER_SPRITE = 6;
+
+    // Without drawVertices every sprite is a draw call of its own, the hardware renderer
+    // before API 29 gets at most this many. drawBitmapMesh can't replace the batch, it maps
+    // each mesh cell to a fixed part of the bitmap, so sprites couldn't change their frame.
+    public static final int MAX_UNBATCHED_SPRITES = 120;
+
+    private final int capacity;
+    private final float[] x;
+    private final float[] y;
+    private final float[] vx;
+    private final float[] vy;
+    private final float[] angle;
+    private final float[] spin;
+    private final float[] size;
+    private final float[] frame;
+    private int count = 0;
+
+    public ParticlePool(int capacity) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be in 1.." + MAX_CAPACITY + ": " + capacity);
+        }
+        this.capacity = capacity;
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        angle = new float[capacity];
+        spin = new float[capacity];
+        size = new float[capacity];
+        frame = new float[capacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @param vx     px per second
+     * @param vy     px per second
+     * @param angle  degrees
+     * @param spin   degrees per second
+     * @param size   sprite edge length in px
+     * @param frame  starting sprite frame
+     * @return index of the new sprite or -1 if the pool is full
+     */
+    public int spawn(float x, float y, float vx, float vy, float angle, float spin, float size, float frame) {
+        if (count == capacity) {
+            return -1;
+        }
+        int index = count++;
+        set(index, x, y, vx, vy, angle, spin, size, frame);
+        return index;
+    }
+
+    /**
+     * Reuse a live sprite, e.g. wrap it around when it leaves the screen
+     */
+    public void set(int index, float x, float y, float vx, float vy, float angle, float spin, float size, float frame) {
+        this.x[index] = x;
+        this.y[index] = y;
+        this.vx[index] = vx;
+        this.vy[index] = vy;
+        this.angle[index] = angle;
+        this.spin[index] = spin;
+        this.size[index] = size;
+        this.frame[index] = frame;
+    }
+
+    /**
+     * Remove a sprite, the last sprite takes its index
+     */
+    public void kill(int index) {
+        int last = --count;
+        if (index != last) {
+            set(index, x[last], y[last], vx[last], vy[last], angle[last], spin[last], size[last], frame[last]);
+        }
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public float getX(int index) {
+        return x[index];
+    }
+
+    public float getY(int index) {
+        return y[index];
+    }
+
+    public float getAngle(int index) {
+        return angle[index];
+    }
+
+    public float getSize(int index) {
+        return size[index];
+    }
+
+    public int getFrame(int index) {
+        return (int) frame[index];
+    }
+
+    /**
+     * Advance all sprites by dtSeconds
+     *
+     * @param frameRate  sprite frames per second, 0 keeps every sprite on its frame
+     * @param frameCount number of frames in the sprite cycle
+     */
+    public void update(float dtSeconds, float frameRate, int frameCount) {
+        float frameStep = frameRate * dtSeconds;
+        for (int i = 0; i < count; i++) {
+            x[i] += vx[i] * dtSeconds;
+            y[i] += vy[i] * dtSeconds;
+            angle[i] += spin[i] * dtSeconds;
+            if (frameStep != 0) {
+                frame[i] = (frame[i] + frameStep) % frameCount;
+            }
+        }
+    }
+
+    /**
+     * Write a rotated quad per sprite, as expected by Canvas.drawVertices with indices from
+     * {@link #buildQuadIndices(int)}. Texture coordinates are in atlas pixels, frames are
+     * laid out in a grid of cellSize cells with the given number of columns.
+     *
+     * @return number of floats written to each array
+     */
+    public int writeQuads(float[] vertices, float[] texCoords, float cellSize, int columns) {
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+            float half = size[i] * 0.5f;
+            double radians = Math.toRadians(angle[i]);
+            float c = (float) Math.cos(radians) * half;
+            float s = (float) Math.sin(radians) * half;
+            float cx = x[i];
+            float cy = y[i];
+
+            // Corners (-1,-1) (1,-1) (1,1) (-1,1) rotated around the sprite center
+            vertices[offset] = cx - c + s;
+            vertices[offset + 1] = cy - s - c;
+            vertices[offset + 2] = cx + c + s;
+            vertices[offset + 3] = cy + s - c;
+            vertices[offset + 4] = cx + c - s;
+            vertices[offset + 5] = cy + s + c;
+            vertices[offset + 6] = cx - c - s;
+            vertices[offset + 7] = cy - s + c;
+
+            int cell = (int) frame[i];
+            float u0 = (cell % columns) * cellSize;
+            float v0 = (cell / columns) * cellSize;
+            float u1 = u0 + cellSize;
+            float v1 = v0 + cellSize;
+            texCoords[offset] = u0;
+            texCoords[offset + 1] = v0;
+            texCoords[offset + 2] = u1;
+            texCoords[offset + 3] = v0;
+            texCoords[offset + 4] = u1;
+            texCoords[offset + 5] = v1;
+            texCoords[offset + 6] = u0;
+            texCoords[offset + 7] = v1;
+
+            offset += FLOATS_PER_SPRITE;
+        }
+        return offset;
+    }
+
+    /**
+     * Box around all sprites at any rotation, as left, top, right, bottom
+     *
+     * @return false if the pool is empty
+     */
+    public boolean getBounds(float[] bounds) {
+        if (count == 0) {
+            return false;
+        }
+        float left = Float.MAX_VALUE;
+        float top = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE;
+        float bottom = -Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            // Half the diagonal of the quad
+            float radius = size[i] * 0.7072f;
+            left = Math.min(left, x[i] - radius);
+            top = Math.min(top, y[i] - radius);
+            right = Math.max(right, x[i] + radius);
+            bottom = Math.max(bottom, y[i] + radius);
+        }
+        bounds[0] = left;
+        bounds[1] = top;
+        bounds[2] = right;
+        bounds[3] = bottom;
+        return true;
+    }
+
+    /**
+     * Two triangles per quad written by writeQuads
+     */
+    public static short[] buildQuadIndices(int capacity) {
+        short[] indices = new short[capacity * INDICES_PER_SPRITE];
+        for (int i = 0; i < capacity; i++) {
+            int vertex = i * 4;
+            int offset = i * INDICES_PER_SPRITE;
+            indices[offset] = (short) vertex;
+            indices[offset + 1] = (short) (vertex + 1);
+            indices[offset + 2] = (short) (vertex + 2);
+            indices[offset + 3] = (short) vertex;
+            indices[offset + 4] = (short) (vertex + 2);
+            indices[offset + 5] = (short) (vertex + 3);
+        }
+        return indices;
+    }
+}
@@ -0,0 +1,305 @@
+package com.lvr.standclock;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Surface;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Single owner of the video engines. Every engine call runs on the "VideoPlayback" thread,
+ * in the order the commands were sent; other threads only queue commands and read the
+ * PlaybackState each player publishes, so neither side waits on a lock while a player
+ * resets or opens a file. Counts how long the main thread was blocked handing commands
+ * over and how long commands sat in the queue.
+ */
+public class PlaybackActor implements Handler.Callback {
+
+    private static final String TAG = "PlaybackActor";
+
+    private static final int CMD_PREPARE = 1;
+    private static final int CMD_PREPARED = 2;
+    private static final int CMD_FAILED = 3;
+    private static final int CMD_SET_SURFACE = 4;
+    private static final int CMD_START = 5;
+    private static final int CMD_PAUSE = 6;
+    private static final int CMD_RESUME = 7;
+    private static final int CMD_SEEK = 8;
+    private static final int CMD_STOP = 9;
+    private static final int CMD_SAMPLE = 10;
+    private static final int CMD_RELEASE = 11;
+
+    private static final class Prepare {
+        final String path;
+        final boolean looping;
+        final Surface surface;
+        final VideoEngine.Listener listener;
+
+        Prepare(String path, boolean looping, Surface surface, VideoEngine.Listener listener) {
+            this.path = path;
+            this.looping = looping;
+            this.surface = surface;
+            this.listener = listener;
+        }
+    }
+
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Playback thread only
+    private final VideoEngine[] engines;
+    private final boolean[] prepared;
+
+    // Written by the playback thread, read anywhere
+    private final AtomicReferenceArray<PlaybackState> states;
+
+    private final AtomicLong uiBlockedNanos = new AtomicLong();
+    private final AtomicLong uiCommands = new AtomicLong();
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong queuedMillis = new AtomicLong();
+    private final AtomicLong maxQueuedMillis = new AtomicLong();
+
+    public PlaybackActor(int players, boolean mediaCodec) {
+        engines = new VideoEngine[players];
+        prepared = new boolean[players];
+        states = new AtomicReferenceArray<>(players);
+        for (int i = 0; i < players; i++) {
+            engines[i] = mediaCodec ? new MediaCodecEngine() : new MediaPlayerEngine();
+            states.set(i, PlaybackState.IDLE);
+        }
+
+        thread = new HandlerThread("VideoPlayback", Process.THREAD_PRIORITY_DISPLAY);
+        thread.start();
+        handler = new Handler(thread.getLooper(), this);
+    }
+
+    /**
+     * Open a video, the listener gets the events of this player until the next prepare.
+     * Events arrive on the playback thread or, depending on the engine, the main thread.
+     */
+    public void prepare(int player, String path, boolean looping, Surface surface, VideoEngine.Listener listener) {
+        send(CMD_PREPARE, player, 0, new Prepare(path, looping, surface, listener));
+    }
+
+    public void setSurface(int player, Surface surface) {
+        send(CMD_SET_SURFACE, player, 0, surface);
+    }
+
+    public void start(int player) {
+        send(CMD_START, player, 0, null);
+    }
+
+    public void pause(int player) {
+        send(CMD_PAUSE, player, 0, null);
+    }
+
+    /**
+     * Start again if paused, a playing player is left alone
+     */
+    public void resume(int player) {
+        send(CMD_RESUME, player, 0, null);
+    }
+
+    public void seekTo(int player, int msec) {
+        send(CMD_SEEK, player, msec, null);
+    }
+
+    public void stop(int player) {
+        send(CMD_STOP, player, 0, null);
+    }
+
+    /**
+     * Take a fresh state snapshot, then run the reply on the main thread
+     */
+    public void sample(int player, Runnable reply) {
+        send(CMD_SAMPLE, player, 0, reply);
+    }
+
+    public void release(int player) {
+        send(CMD_RELEASE, player, 0, null);
+    }
+
+    /**
+     * Latest snapshot of the player, never blocks
+     */
+    public PlaybackState getState(int player) {
+        return states.get(player);
+    }
+
+    /**
+     * Run the queued commands, then end the thread. Waits for it, the wait is counted.
+     */
+    public void quit() {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                thread.quit();
+            }
+        });
+        long start = System.nanoTime();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            // ignore
+        }
+        recordUiBlocked(start);
+        Log.d(TAG, toString());
+    }
+
+    private void send(int what, int player, int arg, Object obj) {
+        long start = System.nanoTime();
+        handler.obtainMessage(what, player, arg, obj).sendToTarget();
+        recordUiBlocked(start);
+    }
+
+    private void recordUiBlocked(long startNanos) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            uiBlockedNanos.addAndGet(System.nanoTime() - startNanos);
+            uiCommands.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        long queued = Math.max(0, SystemClock.uptimeMillis() - msg.getWhen());
+        commands.incrementAndGet();
+        queuedMillis.addAndGet(queued);
+        if (queued > maxQueuedMillis.get()) {
+            maxQueuedMillis.set(queued);
+        }
+
+        int player = msg.arg1;
+        VideoEngine engine = engines[player];
+        try {
+            switch (msg.what) {
+                case CMD_PREPARE:
+                    Prepare prepare = (Prepare) msg.obj;
+                    prepared[player] = false;
+                    engine.setListener(new StateListener(player, prepare.listener));
+                    engine.setSurface(prepare.surface);
+                    engine.prepare(prepare.path, prepare.looping);
+                    break;
+                case CMD_PREPARED:
+                    prepared[player] = true;
+                    break;
+                case CMD_FAILED:
+                    // Not queried again until the next prepare
+                    prepared[player] = false;
+                    break;
+                case CMD_SET_SURFACE:
+                    engine.setSurface((Surface) msg.obj);
+                    break;
+                case CMD_START:
+                    engine.start();
+                    break;
+                case CMD_PAUSE:
+                    engine.pause();
+                    break;
+                case CMD_RESUME:
+                    if (!engine.isPlaying()) {
+                        engine.start();
+                    }
+                    break;
+                case CMD_SEEK:
+                    engine.seekTo(msg.arg2);
+                    break;
+                case CMD_STOP:
+                    engine.stop();
+                    break;
+                case CMD_RELEASE:
+                    prepared[player] = false;
+                    engine.release();
+                    break;
+                default:
+                    break;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Command " + msg.what + " of player " + player + " failed: " + e.getMessage());
+            if (msg.what == CMD_PREPARE) {
+                ((Prepare) msg.obj).listener.onError(String.valueOf(e.getMessage()));
+            }
+        }
+
+        publish(player);
+        if (msg.what == CMD_SAMPLE && msg.obj != null) {
+            mainHandler.post((Runnable) msg.obj);
+        }
+        return true;
+    }
+
+    private void publish(int player) {
+        if (!prepared[player]) {
+            states.set(player, PlaybackState.IDLE);
+            return;
+        }
+        VideoEngine engine = engines[player];
+        try {
+            states.set(player, new PlaybackState(true, engine.isPlaying(), engine.getDuration(),
+                    engine.getCurrentPosition(), SystemClock.uptimeMillis()));
+        } catch (Exception e) {
+            // Player in an error state
+            states.set(player, PlaybackState.IDLE);
+        }
+    }
+
+    /**
+     * Refreshes the snapshot on engine events before passing them on
+     */
+    private class StateListener implements VideoEngine.Listener {
+        private final int player;
+        private final VideoEngine.Listener listener;
+
+        StateListener(int player, VideoEngine.Listener listener) {
+            this.player = player;
+            this.listener = listener;
+        }
+
+        @Override
+        public void onPrepared(int duration) {
+            handler.obtainMessage(CMD_PREPARED, player, 0).sendToTarget();
+            listener.onPrepared(duration);
+        }
+
+        @Override
+        public void onError(String message) {
+            handler.obtainMessage(CMD_FAILED, player, 0).sendToTarget();
+            listener.onError(message);
+        }
+
+        @Override
+        public void onCompletion() {
+            handler.obtainMessage(CMD_SAMPLE, player, 0).sendToTarget();
+            listener.onCompletion();
+        }
+
+        @Override
+        public void onSeekComplete() {
+            handler.obtainMessage(CMD_SAMPLE, player, 0).sendToTarget();
+            listener.onSeekComplete();
+        }
+
+        @Override
+        public void onRenderingStart() {
+            handler.obtainMessage(CMD_SAMPLE, player, 0).sendToTarget();
+            listener.onRenderingStart();
+        }
+    }
+
+    @Override
+    public String toString() {
+        long count = commands.get();
+        long uiCount = uiCommands.get();
+        return String.format(Locale.US,
+                "Playback: %d commands, queued avg %.1fms max %dms, main thread blocked %.3fms total over %d calls",
+                count, count == 0 ? 0f : queuedMillis.get() / (float) count, maxQueuedMillis.get(),
+                uiBlockedNanos.get() / 1000000f, uiCount);
+    }
+}
@@ -0,0 +1,73 @@
+package com.lvr.standclock;
+
+/**
+ * Linear model of a playing video: position = anchor position + rate * (uptime - anchor uptime).
+ * Fitted from occasional position samples, so a player doesn't have to be polled to know when
+ * it reaches a given position. Pure Java, times are in milliseconds.
+ */
+public class PlaybackClock {
+
+    // Samples closer than this give a too noisy rate
+    private static final long MIN_RATE_SPAN = 500;
+
+    // Anything outside is a stall or a jump, not playback speed
+    private static final float MIN_RATE = 0.5f;
+    private static final float MAX_RATE = 2f;
+
+    private long anchorUptime = -1;
+    private long anchorPosition;
+    private float rate = 1f;
+    private boolean rateMeasured = false;
+
+    /**
+     * Add a position sample, the rate is refined from the previous sample if both are far enough apart.
+     * A previous sample at position 0 is skipped, playback may not have produced its first frame yet.
+     */
+    public void addSample(long uptimeMillis, long positionMillis) {
+        if (anchorUptime >= 0 && anchorPosition > 0 && uptimeMillis - anchorUptime >= MIN_RATE_SPAN) {
+            float sampledRate = (positionMillis - anchorPosition) / (float) (uptimeMillis - anchorUptime);
+            if (sampledRate >= MIN_RATE && sampledRate <= MAX_RATE) {
+                rate = sampledRate;
+                rateMeasured = true;
+            }
+        }
+        anchorUptime = uptimeMillis;
+        anchorPosition = positionMillis;
+    }
+
+    /**
+     * Playback was paused or seeked, the next sample starts over from there. The rate is kept.
+     */
+    public void clearAnchor() {
+        anchorUptime = -1;
+    }
+
+    public void reset() {
+        clearAnchor();
+        rate = 1f;
+        rateMeasured = false;
+    }
+
+    public boolean hasAnchor() {
+        return anchorUptime >= 0;
+    }
+
+    public boolean hasMeasuredRate() {
+        return rateMeasured;
+    }
+
+    public float getRate() {
+        return rate;
+    }
+
+    public long getPositionAt(long uptimeMillis) {
+        return anchorPosition + (long) ((uptimeMillis - anchorUptime) * rate);
+    }
+
+    /**
+     * @return uptime at which playback reaches the given position
+     */
+    public long getUptimeAt(long positionMillis) {
+        return anchorUptime + (long) ((positionMillis - anchorPosition) / rate);
+    }
+}
@@ -0,0 +1,67 @@
+package com.lvr.standclock;
+
+/**
+ * Immutable snapshot of a player, published by the playback thread and read by any thread
+ * without locking. The position was sampled at sampledAt (uptime); a playing video is
+ * assumed to advance in real time from there. Pure Java, times in milliseconds.
+ */
+public final class PlaybackState {
+
+    public static final PlaybackState IDLE = new PlaybackState(false, false, 0, 0, 0);
+
+    private final boolean prepared;
+    private final boolean playing;
+    private final int duration;
+    private final int position;
+    private final long sampledAt;
+
+    public PlaybackState(boolean prepared, boolean playing, int duration, int position, long sampledAt) {
+        this.prepared = prepared;
+        this.playing = playing;
+        this.duration = duration;
+        this.position = position;
+        this.sampledAt = sampledAt;
+    }
+
+    public boolean isPrepared() {
+        return prepared;
+    }
+
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    /**
+     * Position when the snapshot was taken
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    public long getSampledAt() {
+        return sampledAt;
+    }
+
+    /**
+     * Position extrapolated to the given uptime, capped at the duration if known
+     */
+    public int getPositionAt(long uptimeMillis) {
+        if (!playing) {
+            return position;
+        }
+        long extrapolated = position + Math.max(0, uptimeMillis - sampledAt);
+        if (duration > 0) {
+            extrapolated = Math.min(extrapolated, duration);
+        }
+        return (int) extrapolated;
+    }
+
+    @Override
+    public String toString() {
+        return (prepared ? (playing ? "playing " : "paused ") : "idle ") + position + "/" + duration + "ms";
+    }
+}
@@ -0,0 +1,183 @@
+package com.lvr.standclock;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Picks videos from the day or night list of a VideoCatalog with a shuffle bag: every video of
+ * a list plays once per cycle and the video that just played never follows itself.
+ *
+ * The lists and bags are one immutable snapshot swapped with compareAndSet, so the main and
+ * the background thread can pick without locking. A pick is O(1), the bag is reshuffled
+ * once per cycle. Shuffles are derived from the seed only, the same seed gives the same
+ * sequence. Pure Java.
+ */
+public class PlaylistScheduler {
+
+    private static final int BAG_DAY = 0;
+    private static final int BAG_NIGHT = 1;
+    private static final int BAG_ALL = 2;
+
+    private final AtomicReference<State> state;
+
+    public PlaylistScheduler(long seed) {
+        this(new VideoCatalog(Collections.<String>emptyList()), seed);
+    }
+
+    public PlaylistScheduler(VideoCatalog catalog, long seed) {
+        state = new AtomicReference<>(new State(catalog, seed, null));
+    }
+
+    /**
+     * Replace the lists, the bags start a new cycle
+     */
+    public void setCatalog(VideoCatalog catalog) {
+        while (true) {
+            State current = state.get();
+            State updated = new State(catalog, current.nextSeed(), current.last);
+            if (state.compareAndSet(current, updated)) {
+                return;
+            }
+        }
+    }
+
+    public VideoCatalog getCatalog() {
+        return state.get().catalog;
+    }
+
+    /**
+     * Take the next video of the day or night list, or the whole catalog if that list is empty
+     *
+     * @return path, or null if the catalog is empty
+     */
+    public String next(boolean isDay) {
+        while (true) {
+            State current = state.get();
+            int which = current.bagFor(isDay);
+            Bag bag = current.bags[which];
+            if (bag.videos.isEmpty()) {
+                return null;
+            }
+
+            Bag ready = bag.ready(current.last);
+            String pick = ready.current();
+            if (state.compareAndSet(current, current.with(which, ready.advance(), pick))) {
+                return pick;
+            }
+        }
+    }
+
+    /**
+     * The video the following next() returns unless another pick comes first. Called after
+     * next() it is the pick after next, e.g. to prefetch it.
+     *
+     * @return path, or null if the catalog is empty
+     */
+    public String peek(boolean isDay) {
+        State current = state.get();
+        Bag bag = current.bags[current.bagFor(isDay)];
+        if (bag.videos.isEmpty()) {
+            return null;
+        }
+        return bag.ready(current.last).current();
+    }
+
+    private static final class State {
+        final VideoCatalog catalog;
+        final Bag[] bags;
+        final String last;
+
+        State(VideoCatalog catalog, long seed, String last) {
+            this.catalog = catalog;
+            this.bags = new Bag[]{
+                    Bag.empty(catalog.getDayVideos(), seed),
+                    Bag.empty(catalog.getNightVideos(), seed * 31 + 1),
+                    Bag.empty(catalog.getAllVideos(), seed * 31 + 2)
+            };
+            this.last = last;
+        }
+
+        State(VideoCatalog catalog, Bag[] bags, String last) {
+            this.catalog = catalog;
+            this.bags = bags;
+            this.last = last;
+        }
+
+        int bagFor(boolean isDay) {
+            int which = isDay ? BAG_DAY : BAG_NIGHT;
+            return bags[which].videos.isEmpty() ? BAG_ALL : which;
+        }
+
+        State with(int which, Bag bag, String pick) {
+            Bag[] updated = bags.clone();
+            updated[which] = bag;
+            return new State(catalog, updated, pick);
+        }
+
+        long nextSeed() {
+            return bags[BAG_DAY].seed ^ bags[BAG_NIGHT].seed ^ bags[BAG_ALL].seed;
+        }
+    }
+
+    /**
+     * One cycle over a list, order[position] is the next pick. Shared arrays are never modified.
+     */
+    private static final class Bag {
+        final List<String> videos;
+        final int[] order;
+        final int position;
+        final long seed;
+
+        Bag(List<String> videos, int[] order, int position, long seed) {
+            this.videos = videos;
+            this.order = order;
+            this.position = position;
+            this.seed = seed;
+        }
+
+        static Bag empty(List<String> videos, long seed) {
+            return new Bag(videos, new int[0], 0, seed);
+        }
+
+        String current() {
+            return videos.get(order[position]);
+        }
+
+        Bag advance() {
+            return new Bag(videos, order, position + 1, seed);
+        }
+
+        /**
+         * @return this bag, or a new cycle if it is used up, with avoid not as the next pick
+         */
+        Bag ready(String avoid) {
+            Bag bag = position < order.length ? this : shuffle();
+            if (avoid != null && bag.order.length - bag.position > 1 && avoid.equals(bag.current())) {
+                // Can only happen on a new cycle or after switching lists, worth a copy
+                int[] swapped = bag.order.clone();
+                int next = swapped[bag.position];
+                swapped[bag.position] = swapped[bag.position + 1];
+                swapped[bag.position + 1] = next;
+                bag = new Bag(videos, swapped, bag.position, bag.seed);
+            }
+            return bag;
+        }
+
+        private Bag shuffle() {
+            Random random = new Random(seed);
+            int[] shuffled = new int[videos.size()];
+            for (int i = 0; i < shuffled.length; i++) {
+                shuffled[i] = i;
+            }
+            for (int i = shuffled.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int temp = shuffled[i];
+                shuffled[i] = shuffled[j];
+                shuffled[j] = temp;
+            }
+            return new Bag(videos, shuffled, 0, random.nextLong());
+        }
+    }
+}
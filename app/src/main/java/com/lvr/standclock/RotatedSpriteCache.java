@@ -0,0 +1,203 @@
+package com.lvr.standclock;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.os.Build;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Animation frames pre-rendered once at a fixed rotation, so every frame of a run is a plain
+ * translated draw instead of a filtered rotation of the full sprite.
+ * On API 29+ each frame is a RenderNode backed by a hardware layer, older devices render into
+ * a pool of bitmaps that is reused by later runs. The pool path needs software source bitmaps.
+ */
+public class RotatedSpriteCache {
+
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+
+    // Per animation frame, repeated source bitmaps share one rotated copy
+    private Object[] frameNodes;
+    private Bitmap[] frameBitmaps;
+
+    // Reused across runs
+    private final List<Object> nodePool = new ArrayList<>();
+    private final List<Bitmap> bitmapPool = new ArrayList<>();
+
+    private boolean ready = false;
+    private int sourceWidth;
+    private int sourceHeight;
+    private int cellWidth;
+    private int cellHeight;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * The next run uses a different angle, memory is kept for reuse
+     */
+    public void invalidate() {
+        ready = false;
+    }
+
+    /**
+     * Render all frames at the given angle, must be called from onDraw of the view using the cache
+     */
+    public void build(Canvas canvas, Bitmap[] frames, int frameCount, float angle) {
+        sourceWidth = frames[0].getWidth();
+        sourceHeight = frames[0].getHeight();
+
+        // Bounding box of the rotated sprite, plus a pixel for the antialiased edges
+        double radians = Math.toRadians(angle);
+        double cos = Math.abs(Math.cos(radians));
+        double sin = Math.abs(Math.sin(radians));
+        cellWidth = (int) Math.ceil(sourceWidth * cos + sourceHeight * sin) + 2;
+        cellHeight = (int) Math.ceil(sourceWidth * sin + sourceHeight * cos) + 2;
+
+        boolean useNodes = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && canvas.isHardwareAccelerated();
+        if (useNodes) {
+            if (frameNodes == null || frameNodes.length != frameCount) {
+                frameNodes = new Object[frameCount];
+            }
+            frameBitmaps = null;
+        } else {
+            if (frameBitmaps == null || frameBitmaps.length != frameCount) {
+                frameBitmaps = new Bitmap[frameCount];
+            }
+            frameNodes = null;
+        }
+
+        int slots = 0;
+        for (int i = 0; i < frameCount; i++) {
+            int previous = indexOf(frames, frames[i], i);
+            if (previous >= 0) {
+                if (useNodes) {
+                    frameNodes[i] = frameNodes[previous];
+                } else {
+                    frameBitmaps[i] = frameBitmaps[previous];
+                }
+                continue;
+            }
+
+            if (useNodes) {
+                frameNodes[i] = renderNode(slots, frames[i], angle);
+            } else {
+                frameBitmaps[i] = renderBitmap(slots, frames[i], angle);
+            }
+            slots++;
+        }
+        ready = true;
+    }
+
+    private static int indexOf(Bitmap[] frames, Bitmap frame, int end) {
+        for (int i = 0; i < end; i++) {
+            if (frames[i] == frame) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Object renderNode(int slot, Bitmap source, float angle) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return null;
+        }
+
+        RenderNode node;
+        if (slot < nodePool.size()) {
+            node = (RenderNode) nodePool.get(slot);
+        } else {
+            node = new RenderNode("RotatedSprite" + slot);
+            // Rasterized once into a layer, later draws only composite it
+            node.setUseCompositingLayer(true, null);
+            nodePool.add(node);
+        }
+
+        node.setPosition(0, 0, cellWidth, cellHeight);
+        RecordingCanvas recordingCanvas = node.beginRecording(cellWidth, cellHeight);
+        try {
+            drawRotated(recordingCanvas, source, angle);
+        } finally {
+            node.endRecording();
+        }
+        return node;
+    }
+
+    private Bitmap renderBitmap(int slot, Bitmap source, float angle) {
+        Bitmap bitmap = slot < bitmapPool.size() ? bitmapPool.get(slot) : null;
+        if (bitmap != null && (bitmap.getWidth() != cellWidth || bitmap.getHeight() != cellHeight)) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                    && bitmap.getAllocationByteCount() >= cellWidth * cellHeight * 4) {
+                bitmap.reconfigure(cellWidth, cellHeight, Bitmap.Config.ARGB_8888);
+            } else {
+                bitmap.recycle();
+                bitmap = null;
+            }
+        }
+
+        if (bitmap == null) {
+            bitmap = Bitmap.createBitmap(cellWidth, cellHeight, Bitmap.Config.ARGB_8888);
+            if (slot < bitmapPool.size()) {
+                bitmapPool.set(slot, bitmap);
+            } else {
+                bitmapPool.add(bitmap);
+            }
+        }
+
+        bitmap.eraseColor(Color.TRANSPARENT);
+        drawRotated(new Canvas(bitmap), source, angle);
+        return bitmap;
+    }
+
+    private void drawRotated(Canvas canvas, Bitmap source, float angle) {
+        canvas.translate(cellWidth / 2f, cellHeight / 2f);
+        canvas.rotate(angle);
+        canvas.drawBitmap(source, -sourceWidth / 2f, -sourceHeight / 2f, paint);
+    }
+
+    /**
+     * Draw a frame so that it covers the same area as the source sprite rotated around its center
+     *
+     * @param x left of the unrotated sprite
+     * @param y top of the unrotated sprite
+     */
+    public void draw(Canvas canvas, int frame, float x, float y) {
+        float left = x + (sourceWidth - cellWidth) / 2f;
+        float top = y + (sourceHeight - cellHeight) / 2f;
+
+        if (frameNodes != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            RenderNode node = (RenderNode) frameNodes[frame];
+            canvas.save();
+            canvas.translate(left, top);
+            canvas.drawRenderNode(node);
+            canvas.restore();
+        } else if (frameBitmaps != null) {
+            canvas.drawBitmap(frameBitmaps[frame], left, top, null);
+        }
+    }
+
+    /**
+     * Free the pooled memory, e.g. when the source frames are released
+     */
+    public void release() {
+        ready = false;
+        frameNodes = null;
+        frameBitmaps = null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            for (Object node : nodePool) {
+                ((RenderNode) node).discardDisplayList();
+            }
+        }
+        nodePool.clear();
+        for (Bitmap bitmap : bitmapPool) {
+            bitmap.recycle();
+        }
+        bitmapPool.clear();
+    }
+}
@@ -0,0 +1,28 @@
+package com.lvr.standclock;
+
+/**
+ * Decides when SpiderView wakes up for its next run. Nothing is scheduled outside Halloween,
+ * while the view is detached or while a spider is running, so the view stays idle. Pure Java.
+ */
+public final class SpiderSchedule {
+
+    public static final long NO_WAKEUP = -1;
+
+    private SpiderSchedule() {
+    }
+
+    /**
+     * @return delay in milliseconds until the next run, or NO_WAKEUP
+     */
+    public static long getWakeupDelay(boolean attached, IDisplayMode.CalendarMode calendarMode,
+                                      boolean spiderVisible, long nextSpiderTime, long now) {
+        if (!attached || spiderVisible || !isSpiderPeriod(calendarMode)) {
+            return NO_WAKEUP;
+        }
+        return Math.max(0, nextSpiderTime - now);
+    }
+
+    public static boolean isSpiderPeriod(IDisplayMode.CalendarMode calendarMode) {
+        return calendarMode == IDisplayMode.CalendarMode.Halloween;
+    }
+}
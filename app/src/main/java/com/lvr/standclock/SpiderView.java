@@ -2,31 +2,93 @@ package com.lvr.standclock;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Matrix;
-import android.graphics.Paint;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
 import android.view.View;
 
+import java.util.Arrays;
 import java.util.Random;
 
 public class SpiderView extends View implements IDisplayMode {
 
-    private Paint paint = new Paint();
+    private static final String TAG = "SpiderView";
 
     // Spider animation variables
-    private int SPIDER_SIZE = 512;
+    private static final int SPIDER_SIZE = 512;
     private Bitmap[] spiderFrames = new Bitmap[12];
     private float spiderX, spiderY;
-    private float spiderVX, spiderVY;
-    private float spiderAngle;
     private boolean spiderVisible = false;
     private long nextSpiderTime = 0;
-    private long lastFrameTime = 0;
     private int currentFrame = 0;
     private final Random random = new Random();
-    private Matrix spiderMatrix = new Matrix();
+    // Frames rotated to the angle of the active run, rebuilt when a run starts
+    private final RotatedSpriteCache rotatedFrames = new RotatedSpriteCache();
+    // Below API 29 the rotated frames are rendered in software, which can't read hardware bitmaps
+    private static final boolean HARDWARE_SPRITES = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+
+    // Position and sprite frame are computed from the time since the run started,
+    // so late frames skip ahead instead of slowing the spider down
+    private static final float SPIDER_SPEED = 600f; // px per second
+    private static final int SPIDER_FRAME_RATE = 20; // sprite frames per second
+    private static final int SPIDER_FRAME_COUNT = 11;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    // Current run, read by the render thread when drawing through a render target
+    private volatile SpiderRun activeRun;
+    private long runStartNanos = 0;
+    private boolean frameCallbackPosted = false;
+    private boolean attached = false;
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            frameCallbackPosted = false;
+            if (!spiderVisible) {
+                return;
+            }
+            long start = System.nanoTime();
+            updateSpider(frameTimeNanos);
+            invalidate();
+            frameStats.record(frameTimeNanos, start, System.nanoTime());
+            if (frameStats.getFrameCount() % STATS_LOG_FRAMES == 0) {
+                Log.d(TAG, frameStats.toString());
+            }
+            if (spiderVisible) {
+                postFrameCallback();
+            } else {
+                frameStats.markIdle();
+            }
+        }
+    };
+
+    // Optional overlay drawing on its own render thread, the spider is drawn there instead of onDraw
+    private OverlayTextureView renderTarget;
+    private volatile Bitmap[] loadedFrames;
+    private final FrameStats frameStats = new FrameStats("SpiderMain");
+    private static final int STATS_LOG_FRAMES = 300;
+
+    // Frames are only resident during Halloween or a manual trigger
+    private static final long IDLE_RELEASE_DELAY = 120000;
+    private boolean framesRequested = false;
+    private int framesGeneration = 0;
+    private final Runnable idleRelease = new Runnable() {
+        @Override
+        public void run() {
+            releaseSpiderFrames("idle");
+        }
+    };
+
+    // Single wakeup for the next Halloween run, nothing is scheduled outside the period
+    private final Runnable spiderWakeup = new Runnable() {
+        @Override
+        public void run() {
+            if (isInSpiderPeriod() && !spiderVisible) {
+                startSpiderAnimation();
+            }
+        }
+    };
 
     // Spider period configuration
     public SpiderView(Context context) {
@@ -48,38 +110,134 @@ public class SpiderView extends View implements IDisplayMode {
         // Make this view transparent
         setBackgroundColor(Color.TRANSPARENT);
 
-        // Load spider animation frames
-        loadSpiderFrames(context);
-
         // Schedule first spider appearance (20-120 seconds from now)
         nextSpiderTime = System.currentTimeMillis() + 20000 + random.nextInt(100000);
     }
 
-    private void loadSpiderFrames(Context context) {
-        spiderFrames[0] = BitmapFactory.decodeResource(context.getResources(), R.drawable.spider0);
-        spiderFrames[1] = BitmapFactory.decodeResource(context.getResources(), R.drawable.spider2);
-        spiderFrames[2] = BitmapFactory.decodeResource(context.getResources(), R.drawable.spider3);
-        spiderFrames[3] = BitmapFactory.decodeResource(context.getResources(), R.drawable.spider2);
-        spiderFrames[4] = BitmapFactory.decodeResource(context.getResources(), R.drawable.spider1);
-        spiderFrames[5] = BitmapFactory.decodeResource(context.getResources(), R.drawable.spider4_0m);
-        spiderFrames[6] = BitmapFactory.decodeResource(context.getResources(), R.drawable.spider5_1m);
-        spiderFrames[7] = BitmapFactory.decodeResource(context.getResources(), R.drawable.spider6_2m);
-        spiderFrames[8] = BitmapFactory.decodeResource(context.getResources(), R.drawable.spider7_3m);
-        spiderFrames[9] = BitmapFactory.decodeResource(context.getResources(), R.drawable.spider6_2m);
-        spiderFrames[10] = BitmapFactory.decodeResource(context.getResources(), R.drawable.spider5_1m);
+    private static final int[] SPIDER_FRAME_RESOURCES = {
+            R.drawable.spider0,
+            R.drawable.spider2,
+            R.drawable.spider3,
+            R.drawable.spider2,
+            R.drawable.spider1,
+            R.drawable.spider4_0m,
+            R.drawable.spider5_1m,
+            R.drawable.spider6_2m,
+            R.drawable.spider7_3m,
+            R.drawable.spider6_2m,
+            R.drawable.spider5_1m
+    };
+
+    private void loadSpiderFrames() {
+        removeCallbacks(idleRelease);
+        if (framesRequested) {
+            return;
+        }
+        framesRequested = true;
+
+        // Decoded in background at SPIDER_SIZE, frames are drawn only once they are loaded
+        final int generation = framesGeneration;
+        final long start = SystemClock.uptimeMillis();
+        final AssetLoader loader = AssetLoader.getInstance(getContext());
+        loader.loadSprites(SPIDER_FRAME_RESOURCES, SPIDER_SIZE, HARDWARE_SPRITES, new AssetLoader.Callback<Bitmap[]>() {
+            @Override
+            public void onLoaded(Bitmap[] frames) {
+                if (generation != framesGeneration) {
+                    // Released while loading, these bitmaps are being recycled
+                    return;
+                }
+                System.arraycopy(frames, 0, spiderFrames, 0, frames.length);
+                loadedFrames = frames;
+                Log.d(TAG, "Spider frames loaded in " + (SystemClock.uptimeMillis() - start)
+                        + "ms, resident sprites " + (loader.getResidentSpriteBytes() / 1024) + "KB");
+            }
+        });
+    }
+
+    private void releaseSpiderFrames(String reason) {
+        removeCallbacks(idleRelease);
+        if (!framesRequested || spiderVisible) {
+            return;
+        }
+        framesRequested = false;
+        framesGeneration++;
+
+        Arrays.fill(spiderFrames, null);
+        loadedFrames = null;
+        if (renderTarget != null) {
+            renderTarget.queueEvent(new Runnable() {
+                @Override
+                public void run() {
+                    threadedSpider.rotatedFrames.release();
+                }
+            });
+        }
+        rotatedFrames.release();
+        AssetLoader.getInstance(getContext()).releaseSprites(SPIDER_FRAME_RESOURCES, SPIDER_SIZE, HARDWARE_SPRITES);
+        Log.d(TAG, "Spider frames released (" + reason + ")");
+    }
+
+    /**
+     * Outside Halloween the frames are kept only for a while after the last run
+     */
+    private void scheduleIdleRelease() {
+        removeCallbacks(idleRelease);
+        if (framesRequested && !isInSpiderPeriod()) {
+            postDelayed(idleRelease, IDLE_RELEASE_DELAY);
+        }
+    }
+
+    public void onTrimMemory(int level) {
+        if (level >= android.content.ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            // Reloaded on demand by the next spider run
+            releaseSpiderFrames("trim memory level " + level);
+        }
     }
 
     private boolean isInSpiderPeriod() {
-        return this.calendarMode == IDisplayMode.CalendarMode.Halloween;
+        return SpiderSchedule.isSpiderPeriod(calendarMode);
     }
 
     public void triggerSpider() {
         if (!spiderVisible) {
             startSpiderAnimation();
-            invalidate();
         }
     }
 
+    /**
+     * Post the wakeup for nextSpiderTime if a Halloween run is due, otherwise cancel it
+     */
+    private void scheduleNextSpider() {
+        removeCallbacks(spiderWakeup);
+        long delay = SpiderSchedule.getWakeupDelay(attached, calendarMode, spiderVisible,
+                nextSpiderTime, System.currentTimeMillis());
+        if (delay != SpiderSchedule.NO_WAKEUP) {
+            postDelayed(spiderWakeup, delay);
+        }
+    }
+
+    /**
+     * Draw the spider on the render thread of the given overlay instead of in onDraw,
+     * the overlay should cover the same area as this view
+     */
+    public void setRenderTarget(OverlayTextureView target) {
+        renderTarget = target;
+        if (target != null) {
+            removeFrameCallback();
+            target.setOverlay(threadedSpider);
+        } else {
+            postFrameCallback();
+        }
+        invalidate();
+    }
+
+    /**
+     * Frame pacing of the thread the spider is animated on
+     */
+    public FrameStats getFrameStats() {
+        return renderTarget != null ? renderTarget.getFrameStats() : frameStats;
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
@@ -87,61 +245,89 @@ public class SpiderView extends View implements IDisplayMode {
         // Clear canvas with transparency
         canvas.drawColor(Color.TRANSPARENT);
 
-        // Anti aliasing
-        paint.setFlags(Paint.ANTI_ALIAS_FLAG);
-
-        long now = System.currentTimeMillis();
+        // Position is advanced by the frame callback, onDraw only draws the current state.
+        // All frames are delivered at once, so the first one tells whether they are loaded
+        SpiderRun run = activeRun;
+        if (renderTarget == null && run != null && spiderFrames[0] != null) {
+            if (!rotatedFrames.isReady()) {
+                long start = SystemClock.uptimeMillis();
+                rotatedFrames.build(canvas, spiderFrames, SPIDER_FRAME_COUNT, run.angle);
+                Log.d(TAG, "Rotated spider frames rendered in " + (SystemClock.uptimeMillis() - start) + "ms");
+            }
+            rotatedFrames.draw(canvas, currentFrame, spiderX, spiderY);
+        }
+    }
 
-        // Spider animation logic
-        if (isInSpiderPeriod() && !spiderVisible && now > nextSpiderTime) {
-            startSpiderAnimation();
-            invalidate();
+    private void updateSpider(long frameTimeNanos) {
+        SpiderRun run = activeRun;
+        if (runStartNanos == 0) {
+            runStartNanos = frameTimeNanos;
         }
+        long elapsedNanos = Math.max(0, frameTimeNanos - runStartNanos);
 
-        if (spiderVisible) {
-            // Update position
-            spiderX += spiderVX;
-            spiderY += spiderVY;
+        spiderX = run.getX(elapsedNanos);
+        spiderY = run.getY(elapsedNanos);
+        currentFrame = SpiderRun.getFrame(elapsedNanos);
 
-            currentFrame = (currentFrame + 1) % 11;
-            lastFrameTime = now;
+        if (run.isOffScreen(spiderX, spiderY, getWidth(), getHeight())) {
+            finishRun(run);
+        }
+    }
 
-            // Draw the spider with rotation
-            if (spiderFrames[currentFrame] != null) {
-                drawRotatedSpider(canvas, spiderFrames[currentFrame], spiderX, spiderY, spiderVX, spiderVY);
-            }
+    /**
+     * Called on the main thread once the spider of the given run left the screen
+     */
+    private void finishRun(SpiderRun run) {
+        if (activeRun != run) {
+            return;
+        }
+        activeRun = null;
+        spiderVisible = false;
+        // Schedule next appearance (1-3 mins)
+        nextSpiderTime = System.currentTimeMillis() + 60000 + random.nextInt(120000);
+        scheduleIdleRelease();
+        scheduleNextSpider();
+    }
 
-            // Check if spider is off screen
-            if (spiderX < -2 * SPIDER_SIZE - spiderVX || spiderX > getWidth() + SPIDER_SIZE + spiderVX ||
-                    spiderY < -2 * SPIDER_SIZE - spiderVY || spiderY > getHeight() + SPIDER_SIZE + spiderVY) {
-                spiderVisible = false;
-                // Schedule next appearance (1-3 mins)
-                nextSpiderTime = now + 60000 + random.nextInt(120000);
-            }
+    /**
+     * Frame callbacks are only registered while the spider is running
+     */
+    private void postFrameCallback() {
+        if (!frameCallbackPosted && spiderVisible && attached && renderTarget == null) {
+            frameCallbackPosted = true;
+            Choreographer.getInstance().postFrameCallback(frameCallback);
         }
+    }
 
-        if (spiderVisible) {
-            // Redraw for animation
-            postInvalidateDelayed(50);
-        } else {
-            postInvalidateDelayed(1000);
+    private void removeFrameCallback() {
+        if (frameCallbackPosted) {
+            frameCallbackPosted = false;
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
         }
     }
 
-    private void drawRotatedSpider(Canvas canvas, Bitmap bitmap, float x, float y, float vx, float vy) {
-        // Set up transformation matrix
-        spiderMatrix.reset();
-        spiderMatrix.postRotate(spiderAngle, bitmap.getWidth() / 2f, bitmap.getHeight() / 2f);
-        spiderMatrix.postTranslate(x, y);
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        attached = true;
+        postFrameCallback();
+        scheduleNextSpider();
+    }
 
-        // Draw with rotation
-        canvas.drawBitmap(bitmap, spiderMatrix, paint);
+    @Override
+    protected void onDetachedFromWindow() {
+        attached = false;
+        removeFrameCallback();
+        removeCallbacks(spiderWakeup);
+        super.onDetachedFromWindow();
     }
 
     private void startSpiderAnimation() {
+        loadSpiderFrames();
         spiderVisible = true;
         currentFrame = 0;
-        lastFrameTime = System.currentTimeMillis();
+        // Taken from the first frame callback, so the run starts at the vsync it is drawn on
+        runStartNanos = 0;
 
         int width = getWidth();
         int height = getHeight();
@@ -178,10 +364,105 @@ public class SpiderView extends View implements IDisplayMode {
         // Length of vector from starting to target point for speed calculation
         int vlen = (int) Math.round(Math.sqrt((spiderX - xcen) * (spiderX - xcen) + (spiderY - ycen) * (spiderY - ycen)));
 
-        spiderVX = 30 * (xcen - spiderX) / vlen;
-        spiderVY = 30 * (ycen - spiderY) / vlen;
+        float spiderVX = SPIDER_SPEED * (xcen - spiderX) / vlen;
+        float spiderVY = SPIDER_SPEED * (ycen - spiderY) / vlen;
+
+        float spiderAngle = (float) Math.toDegrees(Math.atan2(spiderVY, spiderVX)) + 90f;
+        rotatedFrames.invalidate();
 
-        spiderAngle = (float) Math.toDegrees(Math.atan2(spiderVY, spiderVX)) + 90f;
+        activeRun = new SpiderRun(spiderX, spiderY, spiderVX, spiderVY, spiderAngle);
+        removeCallbacks(spiderWakeup);
+        if (renderTarget != null) {
+            renderTarget.requestRender();
+        } else {
+            postFrameCallback();
+        }
+    }
+
+    /**
+     * Parameters of one run. Position and sprite frame are functions of the time since
+     * the run started, immutable so the render thread can read it without locking.
+     */
+    private static final class SpiderRun {
+        final float startX;
+        final float startY;
+        final float vx;
+        final float vy;
+        final float angle;
+
+        SpiderRun(float startX, float startY, float vx, float vy, float angle) {
+            this.startX = startX;
+            this.startY = startY;
+            this.vx = vx;
+            this.vy = vy;
+            this.angle = angle;
+        }
+
+        float getX(long elapsedNanos) {
+            return startX + vx * (elapsedNanos / (float) NANOS_PER_SECOND);
+        }
+
+        float getY(long elapsedNanos) {
+            return startY + vy * (elapsedNanos / (float) NANOS_PER_SECOND);
+        }
+
+        static int getFrame(long elapsedNanos) {
+            return (int) (elapsedNanos * SPIDER_FRAME_RATE / NANOS_PER_SECOND % SPIDER_FRAME_COUNT);
+        }
+
+        boolean isOffScreen(float x, float y, int width, int height) {
+            return x < -2 * SPIDER_SIZE || x > width + SPIDER_SIZE ||
+                    y < -2 * SPIDER_SIZE || y > height + SPIDER_SIZE;
+        }
+    }
+
+    /**
+     * Draws the active run on the render thread of the render target
+     */
+    private final ThreadedSpider threadedSpider = new ThreadedSpider();
+
+    private final class ThreadedSpider implements OverlayTextureView.Overlay {
+
+        // Render thread only
+        final RotatedSpriteCache rotatedFrames = new RotatedSpriteCache();
+        private SpiderRun drawnRun;
+        private long startNanos;
+
+        @Override
+        public boolean drawFrame(Canvas canvas, long frameTimeNanos) {
+            final SpiderRun run = activeRun;
+            if (run == null) {
+                drawnRun = null;
+                return false;
+            }
+            if (run != drawnRun) {
+                drawnRun = run;
+                startNanos = frameTimeNanos;
+                rotatedFrames.invalidate();
+            }
+
+            long elapsedNanos = frameTimeNanos - startNanos;
+            float x = run.getX(elapsedNanos);
+            float y = run.getY(elapsedNanos);
+            if (run.isOffScreen(x, y, canvas.getWidth(), canvas.getHeight())) {
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        finishRun(run);
+                    }
+                });
+                return false;
+            }
+
+            Bitmap[] frames = loadedFrames;
+            if (frames != null) {
+                if (!rotatedFrames.isReady()) {
+                    rotatedFrames.build(canvas, frames, SPIDER_FRAME_COUNT, run.angle);
+                }
+                rotatedFrames.draw(canvas, SpiderRun.getFrame(elapsedNanos), x, y);
+            }
+            return true;
+        }
     }
 
     protected boolean isDay;
@@ -190,6 +471,13 @@ public class SpiderView extends View implements IDisplayMode {
     public void SetDisplayMode(boolean isDay, CalendarMode calendarMode) {
         this.isDay = isDay;
         this.calendarMode = calendarMode;
-        invalidate();
+
+        if (isInSpiderPeriod()) {
+            loadSpiderFrames();
+        } else {
+            scheduleIdleRelease();
+        }
+        // A running spider keeps going, it redraws itself from the frame callback
+        scheduleNextSpider();
     }
 }
\ No newline at end of file
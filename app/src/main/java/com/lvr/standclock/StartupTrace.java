@@ -0,0 +1,59 @@
+package com.lvr.standclock;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Cold start timing: process start -> first frame -> all assets ready.
+ * All values are in SystemClock.uptimeMillis() time base.
+ */
+public final class StartupTrace {
+
+    private static final String TAG = "StartupTrace";
+
+    // Fallback for devices without Process.getStartUptimeMillis()
+    private static final long CLASS_LOAD_UPTIME = SystemClock.uptimeMillis();
+
+    private static long firstFrameUptime = 0;
+    private static long readyUptime = 0;
+
+    private StartupTrace() {
+    }
+
+    public static long getProcessStartUptime() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return Process.getStartUptimeMillis();
+        }
+        return CLASS_LOAD_UPTIME;
+    }
+
+    public static void markFirstFrame() {
+        if (firstFrameUptime == 0) {
+            firstFrameUptime = SystemClock.uptimeMillis();
+            Log.i(TAG, "First frame " + getFirstFrameMillis() + "ms after process start");
+        }
+    }
+
+    public static void markReady() {
+        if (readyUptime == 0) {
+            readyUptime = SystemClock.uptimeMillis();
+            Log.i(TAG, "Fully ready " + getReadyMillis() + "ms after process start");
+        }
+    }
+
+    /**
+     * @return milliseconds from process start to the first frame, 0 if not drawn yet
+     */
+    public static long getFirstFrameMillis() {
+        return firstFrameUptime == 0 ? 0 : firstFrameUptime - getProcessStartUptime();
+    }
+
+    /**
+     * @return milliseconds from process start until all assets were ready, 0 if not ready yet
+     */
+    public static long getReadyMillis() {
+        return readyUptime == 0 ? 0 : readyUptime - getProcessStartUptime();
+    }
+}
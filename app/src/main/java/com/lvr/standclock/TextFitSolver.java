@@ -0,0 +1,132 @@
+package com.lvr.standclock;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Finds the largest integer text size at which a text template fits into a container.
+ * Uses a binary search instead of stepping the size, and memoizes results per
+ * container size, typeface and template, so a layout pass pays for the search only once.
+ * Pure Java, the actual text measuring is supplied through {@link Measurer}.
+ */
+public class TextFitSolver {
+
+    public interface Measurer {
+        /**
+         * @return true if the text drawn at the given size fits into width x height
+         */
+        boolean fits(float textSize, String template, int width, int height);
+    }
+
+    private static final int MAX_CACHED = 16;
+    private static final float INITIAL_UPPER_BOUND = 64;
+
+    private final Measurer measurer;
+    private final Map<Key, Float> cache = new LinkedHashMap<Key, Float>(MAX_CACHED, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Float> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+    private final Key lookupKey = new Key();
+
+    private int measureCount = 0;
+
+    public TextFitSolver(Measurer measurer) {
+        this.measurer = measurer;
+    }
+
+    /**
+     * @param typeface any object identifying the font, compared by identity
+     */
+    public float solve(int width, int height, Object typeface, String template) {
+        lookupKey.set(width, height, typeface, template);
+        Float cached = cache.get(lookupKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        float size = search(width, height, template);
+
+        Key key = new Key();
+        key.set(width, height, typeface, template);
+        cache.put(key, size);
+        return size;
+    }
+
+    private float search(int width, int height, String template) {
+        if (width <= 0 || height <= 0 || !fits(1, template, width, height)) {
+            return 0;
+        }
+
+        // Grow the upper bound until the text no longer fits
+        float low = 1;
+        float high = INITIAL_UPPER_BOUND;
+        while (fits(high, template, width, height)) {
+            low = high;
+            high *= 2;
+        }
+
+        // Largest integer size in [low, high) that fits
+        int lo = (int) low;
+        int hi = (int) high;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (fits(mid, template, width, height)) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private boolean fits(float textSize, String template, int width, int height) {
+        measureCount++;
+        return measurer.fits(textSize, template, width, height);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Number of measure calls so far, for benchmarks and tests
+     */
+    public int getMeasureCount() {
+        return measureCount;
+    }
+
+    private static final class Key {
+        int width;
+        int height;
+        Object typeface;
+        String template;
+
+        void set(int width, int height, Object typeface, String template) {
+            this.width = width;
+            this.height = height;
+            this.typeface = typeface;
+            this.template = template;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return width == other.width && height == other.height
+                    && typeface == other.typeface && template.equals(other.template);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = width;
+            result = 31 * result + height;
+            result = 31 * result + System.identityHashCode(typeface);
+            result = 31 * result + template.hashCode();
+            return result;
+        }
+    }
+}
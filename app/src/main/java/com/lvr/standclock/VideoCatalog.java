@@ -0,0 +1,114 @@
+package com.lvr.standclock;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable split of the video files into day and night playlists, plus the
+ * filename conventions for per-video brightness. Pure Java, no Android dependencies.
+ *
+ * Filename patterns:
+ *  d_   - day video
+ *  n_   - night video
+ *  dn_  - darkened night video (50% brightness)
+ *  b_XX - explicit brightness in percent, wins over everything else
+ */
+public class VideoCatalog {
+
+    public static final float VIDEO_BRIGHTNESS_DAY = 1.0f;
+    public static final float VIDEO_BRIGHTNESS_NIGHT = 0.8f;
+
+    private final List<String> allVideos;
+    private final List<String> dayVideos;
+    private final List<String> nightVideos;
+
+    public VideoCatalog(List<String> videoPaths) {
+        List<String> day = new ArrayList<>();
+        List<String> night = new ArrayList<>();
+
+        for (String path : videoPaths) {
+            String filename = new File(path).getName().toLowerCase();
+
+            if (filename.startsWith("d_")) {
+                day.add(path);
+            }
+
+            if (filename.startsWith("n_") || filename.startsWith("dn_")) {
+                night.add(path);
+            }
+        }
+
+        this.allVideos = Collections.unmodifiableList(new ArrayList<>(videoPaths));
+        this.dayVideos = Collections.unmodifiableList(day);
+        this.nightVideos = Collections.unmodifiableList(night);
+    }
+
+    public List<String> getAllVideos() {
+        return allVideos;
+    }
+
+    public List<String> getDayVideos() {
+        return dayVideos;
+    }
+
+    public List<String> getNightVideos() {
+        return nightVideos;
+    }
+
+    /**
+     * Day or night list, or all videos when the list for the current mode is empty
+     */
+    public List<String> getCurrentPlaylist(boolean isDay) {
+        List<String> playlist = isDay ? dayVideos : nightVideos;
+
+        if (playlist.isEmpty()) {
+            return allVideos;
+        }
+
+        return playlist;
+    }
+
+    public static float calculateBrightness(String filename, boolean isDayTime) {
+        filename = filename.toLowerCase();
+
+        float explicit = parseExplicitBrightness(filename);
+        if (explicit >= 0) {
+            return explicit;
+        }
+
+        if (filename.startsWith("n_")) {
+            return 1.0f;
+        } else if (filename.startsWith("d_")) {
+            return 1.0f;
+        } else if (filename.contains("dn_")) {
+            return 0.5f;
+        }
+
+        return isDayTime ? VIDEO_BRIGHTNESS_DAY : VIDEO_BRIGHTNESS_NIGHT;
+    }
+
+    /**
+     * @return brightness from a b_XX tag, or -1 if the filename has none
+     */
+    public static float parseExplicitBrightness(String filename) {
+        filename = filename.toLowerCase();
+
+        if (filename.contains("b_")) {
+            try {
+                int startIdx = filename.indexOf("b_") + 2;
+                int endIdx = startIdx + 2;
+                if (endIdx <= filename.length()) {
+                    String brightnessStr = filename.substring(startIdx, endIdx);
+                    int brightness = Integer.parseInt(brightnessStr);
+                    float result = brightness / 100.0f;
+                    return Math.max(0.0f, Math.min(1.0f, result));
+                }
+            } catch (Exception e) {
+                // ignore
+            }
+        }
+        return -1f;
+    }
+}
@@ -0,0 +1,317 @@
+package com.lvr.standclock;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.SurfaceTexture;
+import android.opengl.GLES11Ext;
+import android.opengl.GLES20;
+import android.opengl.GLSurfaceView;
+import android.opengl.Matrix;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Surface;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import javax.microedition.khronos.egl.EGLConfig;
+import javax.microedition.khronos.opengles.GL10;
+
+/**
+ * Composites the two crossfading videos in a single shader pass. Each video decodes into a
+ * SurfaceTexture owned by this view's GL thread, the shader blends them over the background
+ * color with the per-layer alpha. Replaces two full-screen TextureView layers plus the
+ * hardware layer of their parent with one full-screen draw. Fades are ramped on the GL
+ * thread, so they don't depend on the main thread drawing.
+ */
+public class VideoCompositorView extends GLSurfaceView implements GLSurfaceView.Renderer {
+
+    private static final String TAG = "VideoCompositor";
+
+    public static final int LAYER_COUNT = 2;
+
+    private static final int STATS_LOG_FRAMES = 600;
+
+    public interface SurfaceListener {
+        /**
+         * A new decoder output surface for the layer, called on the main thread.
+         * Called again if the GL context had to be recreated.
+         */
+        void onCompositorSurface(Surface surface);
+    }
+
+    private static final String VERTEX_SHADER =
+            "attribute vec4 aPosition;\n" +
+            "attribute vec4 aTexCoord;\n" +
+            "uniform mat4 uTexMatrix0;\n" +
+            "uniform mat4 uTexMatrix1;\n" +
+            "varying vec2 vTexCoord0;\n" +
+            "varying vec2 vTexCoord1;\n" +
+            "void main() {\n" +
+            "    gl_Position = aPosition;\n" +
+            "    vTexCoord0 = (uTexMatrix0 * aTexCoord).xy;\n" +
+            "    vTexCoord1 = (uTexMatrix1 * aTexCoord).xy;\n" +
+            "}\n";
+
+    // Same result as layer 1 over layer 0 over the background, each with its alpha
+    private static final String FRAGMENT_SHADER =
+            "#extension GL_OES_EGL_image_external : require\n" +
+            "precision mediump float;\n" +
+            "varying vec2 vTexCoord0;\n" +
+            "varying vec2 vTexCoord1;\n" +
+            "uniform samplerExternalOES uTexture0;\n" +
+            "uniform samplerExternalOES uTexture1;\n" +
+            "uniform float uAlpha0;\n" +
+            "uniform float uAlpha1;\n" +
+            "uniform vec3 uBackground;\n" +
+            "void main() {\n" +
+            "    vec3 color = uBackground;\n" +
+            "    if (uAlpha0 > 0.0) {\n" +
+            "        color = mix(color, texture2D(uTexture0, vTexCoord0).rgb, uAlpha0);\n" +
+            "    }\n" +
+            "    if (uAlpha1 > 0.0) {\n" +
+            "        color = mix(color, texture2D(uTexture1, vTexCoord1).rgb, uAlpha1);\n" +
+            "    }\n" +
+            "    gl_FragColor = vec4(color, 1.0);\n" +
+            "}\n";
+
+    // Full-screen triangle strip: x, y, u, v
+    private static final float[] QUAD = {
+            -1f, -1f, 0f, 0f,
+            1f, -1f, 1f, 0f,
+            -1f, 1f, 0f, 1f,
+            1f, 1f, 1f, 1f,
+    };
+
+    private final FloatBuffer quad;
+
+    // Alphas and fades set from the main thread, evaluated on the GL thread
+    private final LayerFader fader = new LayerFader(LAYER_COUNT);
+    private volatile int backgroundColor = Color.BLACK;
+    private final SurfaceListener[] listeners = new SurfaceListener[LAYER_COUNT];
+    private final Surface[] deliveredSurfaces = new Surface[LAYER_COUNT];
+
+    // GL thread only
+    private final SurfaceTexture[] surfaceTextures = new SurfaceTexture[LAYER_COUNT];
+    private final int[] textureIds = new int[LAYER_COUNT];
+    private final float[][] texMatrices = new float[LAYER_COUNT][16];
+    private final boolean[] frameAvailable = new boolean[LAYER_COUNT];
+    private int program;
+    private int positionHandle;
+    private int texCoordHandle;
+    private final int[] texMatrixHandles = new int[LAYER_COUNT];
+    private final int[] textureHandles = new int[LAYER_COUNT];
+    private final int[] alphaHandles = new int[LAYER_COUNT];
+    private int backgroundHandle;
+    private final float[] drawAlpha = new float[LAYER_COUNT];
+
+    private final FrameStats frameStats = new FrameStats("VideoCompositor");
+
+    public VideoCompositorView(Context context) {
+        super(context);
+
+        quad = ByteBuffer.allocateDirect(QUAD.length * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        quad.put(QUAD).position(0);
+        for (float[] matrix : texMatrices) {
+            Matrix.setIdentityM(matrix, 0);
+        }
+
+        setEGLContextClientVersion(2);
+        // Decoders keep writing into the SurfaceTextures, they must survive a pause
+        setPreserveEGLContextOnPause(true);
+        setRenderer(this);
+        setRenderMode(RENDERMODE_WHEN_DIRTY);
+    }
+
+    /**
+     * Surfaces are delivered once the GL thread created them
+     */
+    public void setSurfaceListener(int layer, SurfaceListener listener) {
+        listeners[layer] = listener;
+        if (deliveredSurfaces[layer] != null) {
+            listener.onCompositorSurface(deliveredSurfaces[layer]);
+        }
+    }
+
+    public void setLayerAlpha(int layer, float alpha) {
+        if (fader.setAlpha(layer, alpha)) {
+            requestRender();
+        }
+    }
+
+    /**
+     * Fade the layer linearly from its current alpha, evaluated per frame on the GL thread
+     */
+    public void fadeLayer(int layer, float alpha, long durationMillis) {
+        fader.fade(layer, alpha, SystemClock.uptimeMillis(), durationMillis);
+        requestRender();
+    }
+
+    /**
+     * Shown where the videos are transparent, transparent colors are drawn black
+     */
+    public void setClearColor(int color) {
+        backgroundColor = color;
+        requestRender();
+    }
+
+    public FrameStats getFrameStats() {
+        return frameStats;
+    }
+
+    @Override
+    public void onSurfaceCreated(GL10 unused, EGLConfig config) {
+        program = createProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+        positionHandle = GLES20.glGetAttribLocation(program, "aPosition");
+        texCoordHandle = GLES20.glGetAttribLocation(program, "aTexCoord");
+        backgroundHandle = GLES20.glGetUniformLocation(program, "uBackground");
+        for (int i = 0; i < LAYER_COUNT; i++) {
+            texMatrixHandles[i] = GLES20.glGetUniformLocation(program, "uTexMatrix" + i);
+            textureHandles[i] = GLES20.glGetUniformLocation(program, "uTexture" + i);
+            alphaHandles[i] = GLES20.glGetUniformLocation(program, "uAlpha" + i);
+        }
+
+        // A new context means new textures, the players are moved to the new surfaces
+        GLES20.glGenTextures(LAYER_COUNT, textureIds, 0);
+        for (int i = 0; i < LAYER_COUNT; i++) {
+            GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, textureIds[i]);
+            GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+
+            final int layer = i;
+            final SurfaceTexture oldTexture = surfaceTextures[i];
+            SurfaceTexture surfaceTexture = new SurfaceTexture(textureIds[i]);
+            surfaceTexture.setOnFrameAvailableListener(new SurfaceTexture.OnFrameAvailableListener() {
+                @Override
+                public void onFrameAvailable(SurfaceTexture texture) {
+                    synchronized (frameAvailable) {
+                        frameAvailable[layer] = true;
+                    }
+                    requestRender();
+                }
+            });
+            surfaceTextures[i] = surfaceTexture;
+            frameAvailable[i] = false;
+
+            final Surface surface = new Surface(surfaceTexture);
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    Surface oldSurface = deliveredSurfaces[layer];
+                    deliveredSurfaces[layer] = surface;
+                    if (listeners[layer] != null) {
+                        listeners[layer].onCompositorSurface(surface);
+                    }
+                    if (oldSurface != null) {
+                        oldSurface.release();
+                    }
+                    if (oldTexture != null) {
+                        oldTexture.release();
+                    }
+                }
+            });
+        }
+        Log.d(TAG, "GL surfaces created");
+    }
+
+    @Override
+    public void onSurfaceChanged(GL10 unused, int width, int height) {
+        GLES20.glViewport(0, 0, width, height);
+    }
+
+    @Override
+    public void onDrawFrame(GL10 unused) {
+        long start = System.nanoTime();
+
+        for (int i = 0; i < LAYER_COUNT; i++) {
+            boolean update;
+            synchronized (frameAvailable) {
+                update = frameAvailable[i];
+                frameAvailable[i] = false;
+            }
+            if (update) {
+                surfaceTextures[i].updateTexImage();
+                surfaceTextures[i].getTransformMatrix(texMatrices[i]);
+            }
+        }
+
+        boolean fading = fader.evaluate(SystemClock.uptimeMillis(), drawAlpha);
+        for (int i = 0; i < LAYER_COUNT; i++) {
+            if (fader.isFadeFinished(i)) {
+                Log.d(TAG, "Layer " + i + " " + fader.getSmoothness(i));
+            }
+        }
+        int color = backgroundColor;
+
+        GLES20.glUseProgram(program);
+        GLES20.glUniform3f(backgroundHandle, Color.red(color) / 255f, Color.green(color) / 255f, Color.blue(color) / 255f);
+        GLES20.glUniform1f(alphaHandles[0], drawAlpha[0]);
+        GLES20.glUniform1f(alphaHandles[1], drawAlpha[1]);
+        for (int i = 0; i < LAYER_COUNT; i++) {
+            GLES20.glActiveTexture(GLES20.GL_TEXTURE0 + i);
+            GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, textureIds[i]);
+            GLES20.glUniform1i(textureHandles[i], i);
+            GLES20.glUniformMatrix4fv(texMatrixHandles[i], 1, false, texMatrices[i], 0);
+        }
+
+        quad.position(0);
+        GLES20.glVertexAttribPointer(positionHandle, 2, GLES20.GL_FLOAT, false, 16, quad);
+        GLES20.glEnableVertexAttribArray(positionHandle);
+        quad.position(2);
+        GLES20.glVertexAttribPointer(texCoordHandle, 2, GLES20.GL_FLOAT, false, 16, quad);
+        GLES20.glEnableVertexAttribArray(texCoordHandle);
+
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+
+        GLES20.glDisableVertexAttribArray(positionHandle);
+        GLES20.glDisableVertexAttribArray(texCoordHandle);
+
+        // Work time on the GL thread, compare with the window frame times of the TextureView path
+        frameStats.record(start, start, System.nanoTime());
+        if (frameStats.getFrameCount() % STATS_LOG_FRAMES == 0) {
+            Log.d(TAG, frameStats.toString());
+        }
+
+        // Keep drawing until the fades are done, video frames alone may come too seldom
+        if (fading) {
+            requestRender();
+        }
+    }
+
+    private static int createProgram(String vertexSource, String fragmentSource) {
+        int vertexShader = loadShader(GLES20.GL_VERTEX_SHADER, vertexSource);
+        int fragmentShader = loadShader(GLES20.GL_FRAGMENT_SHADER, fragmentSource);
+
+        int program = GLES20.glCreateProgram();
+        GLES20.glAttachShader(program, vertexShader);
+        GLES20.glAttachShader(program, fragmentShader);
+        GLES20.glLinkProgram(program);
+
+        int[] status = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, status, 0);
+        if (status[0] != GLES20.GL_TRUE) {
+            String log = GLES20.glGetProgramInfoLog(program);
+            GLES20.glDeleteProgram(program);
+            throw new RuntimeException("Could not link compositor program: " + log);
+        }
+        return program;
+    }
+
+    private static int loadShader(int type, String source) {
+        int shader = GLES20.glCreateShader(type);
+        GLES20.glShaderSource(shader, source);
+        GLES20.glCompileShader(shader);
+
+        int[] status = new int[1];
+        GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, status, 0);
+        if (status[0] == 0) {
+            String log = GLES20.glGetShaderInfoLog(shader);
+            GLES20.glDeleteShader(shader);
+            throw new RuntimeException("Could not compile compositor shader: " + log);
+        }
+        return shader;
+    }
+}
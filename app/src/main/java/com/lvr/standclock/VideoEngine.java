@@ -0,0 +1,58 @@
+package com.lvr.standclock;
+
+import android.view.Surface;
+
+import java.io.IOException;
+
+/**
+ * Playback backend of a video layer, so MediaPlayer and MediaCodec playback can be switched.
+ * PlaybackActor calls all methods from its thread.
+ */
+public interface VideoEngine {
+
+    interface Listener {
+        void onPrepared(int duration);
+
+        void onError(String message);
+
+        void onCompletion();
+
+        void onSeekComplete();
+
+        /**
+         * The first frame after start() was rendered to the surface
+         */
+        void onRenderingStart();
+    }
+
+    void setListener(Listener listener);
+
+    /**
+     * Output surface, used by the next prepare() and switched right away where the engine supports it
+     */
+    void setSurface(Surface surface);
+
+    /**
+     * Open the video asynchronously, Listener.onPrepared follows once it can be started
+     */
+    void prepare(String path, boolean looping) throws IOException;
+
+    void start();
+
+    void pause();
+
+    void seekTo(int msec);
+
+    void stop();
+
+    /**
+     * Free the decoder, a later prepare() opens a new one
+     */
+    void release();
+
+    boolean isPlaying();
+
+    int getDuration();
+
+    int getCurrentPosition();
+}
@@ -0,0 +1,272 @@
+package com.lvr.standclock;
+
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.MediaMetadataRetriever;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a VideoMetadataIndex in sync with the video folder. The index file is read once on
+ * the indexer thread and published to the main thread when it's ready, changed or new files are probed on a background thread and the index is saved when
+ * anything changed. Unchanged files are only stat'ed, never opened.
+ * Afterwards files without a b_XX tag get their brightness from a luminance analysis,
+ * one frame at a time and only while playback is not busy.
+ */
+public class VideoIndexer {
+
+    private static final String TAG = "VideoIndexer";
+
+    // Pause between analyzed frames, and between checks while playback is busy
+    private static final long ANALYSIS_FRAME_INTERVAL = 1000;
+    private static final long BUSY_RETRY_INTERVAL = 5000;
+
+    public interface IndexListener {
+        /**
+         * Called on the main thread once the index file has been read
+         */
+        void onIndexLoaded(VideoMetadataIndex index);
+    }
+
+    public interface BusySignal {
+        /**
+         * @return true while playback is preparing or crossfading and needs the decoders
+         */
+        boolean isBusy();
+    }
+
+    private final File indexFile;
+    private final HandlerThread indexThread;
+    private final Handler indexHandler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Indexer thread only, loaded before any update runs
+    private VideoMetadataIndex index;
+
+    private final LuminanceAnalyzer analyzer = new LuminanceAnalyzer();
+    private volatile BusySignal busySignal;
+    private volatile boolean released = false;
+
+    private final LuminanceAnalyzer.Throttle throttle = new LuminanceAnalyzer.Throttle() {
+        @Override
+        public boolean awaitTurn() {
+            try {
+                Thread.sleep(ANALYSIS_FRAME_INTERVAL);
+                while (!released && isPlaybackBusy()) {
+                    Thread.sleep(BUSY_RETRY_INTERVAL);
+                }
+            } catch (InterruptedException e) {
+                return false;
+            }
+            return !released;
+        }
+    };
+
+    public VideoIndexer(File indexFile, final IndexListener listener) {
+        this.indexFile = indexFile;
+
+        indexThread = new HandlerThread("VideoIndexer", Process.THREAD_PRIORITY_BACKGROUND);
+        indexThread.start();
+        indexHandler = new Handler(indexThread.getLooper());
+        indexHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                load(listener);
+            }
+        });
+    }
+
+    private void load(final IndexListener listener) {
+        long start = SystemClock.uptimeMillis();
+        final VideoMetadataIndex loaded = VideoMetadataIndex.load(indexFile);
+        index = loaded;
+        Log.d(TAG, "Loaded " + loaded.size() + " entries in " + (SystemClock.uptimeMillis() - start) + "ms");
+
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!released) {
+                    listener.onIndexLoaded(loaded);
+                }
+            }
+        });
+    }
+
+    public void setBusySignal(BusySignal busySignal) {
+        this.busySignal = busySignal;
+    }
+
+    private boolean isPlaybackBusy() {
+        BusySignal signal = busySignal;
+        return signal != null && signal.isBusy();
+    }
+
+    /**
+     * Bring the index up to date with the given files in the background
+     */
+    public void update(List<String> videoPaths) {
+        final List<String> paths = new ArrayList<>(videoPaths);
+        indexHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                refresh(paths);
+                analyzeBrightness(paths);
+            }
+        });
+    }
+
+    /**
+     * Stop the thread once a running update has been saved
+     */
+    public void release() {
+        released = true;
+        indexHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                indexThread.quit();
+            }
+        });
+    }
+
+    private void refresh(List<String> paths) {
+        long start = SystemClock.uptimeMillis();
+        int probed = 0;
+
+        for (String path : paths) {
+            File file = new File(path);
+            long size = file.length();
+            long lastModified = file.lastModified();
+            if (index.get(path, size, lastModified) != null) {
+                continue;
+            }
+
+            VideoMetadata entry = probe(file, size, lastModified);
+            if (entry != null) {
+                index.put(entry);
+                probed++;
+                Log.d(TAG, "Indexed " + entry);
+            }
+        }
+        index.retainAll(paths);
+
+        try {
+            if (index.save(indexFile)) {
+                Log.d(TAG, "Saved index, " + probed + " of " + paths.size() + " files probed in "
+                        + (SystemClock.uptimeMillis() - start) + "ms");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving index: " + e.getMessage());
+        }
+    }
+
+    private void analyzeBrightness(List<String> paths) {
+        for (String path : paths) {
+            if (released) {
+                return;
+            }
+            VideoMetadata entry = index.get(path);
+            if (entry == null || entry.hasExplicitBrightness() || entry.hasAnalyzedBrightness()
+                    || entry.getDurationMs() <= 0) {
+                continue;
+            }
+
+            float brightness = analyzer.analyze(path, entry.getDurationMs(), throttle);
+            if (brightness < 0) {
+                continue;
+            }
+            index.put(entry.withAnalyzedBrightness(brightness));
+
+            // Saved per file, the analysis of a large folder may be cut short by the next restart
+            try {
+                index.save(indexFile);
+            } catch (IOException e) {
+                Log.e(TAG, "Error saving index: " + e.getMessage());
+            }
+        }
+    }
+
+    private VideoMetadata probe(File file, long size, long lastModified) {
+        String path = file.getAbsolutePath();
+        int duration = 0;
+        int width = 0;
+        int height = 0;
+        String mime = "";
+        int profile = 0;
+        float frameRate = 0;
+
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            retriever.setDataSource(path);
+            duration = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION));
+            width = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_WIDTH));
+            height = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_HEIGHT));
+        } catch (Exception e) {
+            Log.e(TAG, "Cannot read metadata of " + path + ": " + e.getMessage());
+            return null;
+        } finally {
+            try {
+                retriever.release();
+            } catch (Exception e) {
+                // ignore
+            }
+        }
+
+        // Codec details are only in the track format
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(path);
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat format = extractor.getTrackFormat(i);
+                String trackMime = format.getString(MediaFormat.KEY_MIME);
+                if (trackMime != null && trackMime.startsWith("video/")) {
+                    mime = trackMime;
+                    if (format.containsKey(MediaFormat.KEY_FRAME_RATE)) {
+                        frameRate = getNumber(format, MediaFormat.KEY_FRAME_RATE);
+                    }
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && format.containsKey(MediaFormat.KEY_PROFILE)) {
+                        profile = format.getInteger(MediaFormat.KEY_PROFILE);
+                    }
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Cannot read track format of " + path + ": " + e.getMessage());
+        } finally {
+            extractor.release();
+        }
+
+        String filename = file.getName();
+        return new VideoMetadata(path, size, lastModified, duration, width, height, mime, profile, frameRate,
+                VideoMetadata.brightnessFromFilename(filename), VideoMetadata.BRIGHTNESS_UNSET,
+                VideoMetadata.tagsFromFilename(filename));
+    }
+
+    // KEY_FRAME_RATE is an int in some containers and a float in others
+    private static float getNumber(MediaFormat format, String key) {
+        try {
+            return format.getInteger(key);
+        } catch (ClassCastException e) {
+            return format.getFloat(key);
+        }
+    }
+
+    private static int parseInt(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
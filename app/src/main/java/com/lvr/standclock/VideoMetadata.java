@@ -0,0 +1,172 @@
+package com.lvr.standclock;
+
+/**
+ * What is known about one video file without opening a decoder. Immutable, valid as long
+ * as the file still has the recorded size and modification time. Pure Java.
+ */
+public class VideoMetadata {
+
+    public static final int FLAG_DAY = 1;
+    public static final int FLAG_NIGHT = 1 << 1;
+    // Brightness set with b_XX, wins over the luminance analysis
+    public static final int FLAG_EXPLICIT_BRIGHTNESS = 1 << 2;
+
+    // Brightness not known, depends on the time of day
+    public static final float BRIGHTNESS_UNSET = -1f;
+
+    private final String path;
+    private final long size;
+    private final long lastModified;
+    private final int durationMs;
+    private final int width;
+    private final int height;
+    private final String mime;
+    private final int profile;
+    private final float frameRate;
+    private final float brightness;
+    private final float analyzedBrightness;
+    private final int flags;
+
+    public VideoMetadata(String path, long size, long lastModified, int durationMs, int width, int height,
+                         String mime, int profile, float frameRate, float brightness, float analyzedBrightness,
+                         int flags) {
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.durationMs = durationMs;
+        this.width = width;
+        this.height = height;
+        this.mime = mime != null ? mime : "";
+        this.profile = profile;
+        this.frameRate = frameRate;
+        this.brightness = brightness;
+        this.analyzedBrightness = analyzedBrightness;
+        this.flags = flags;
+    }
+
+    public VideoMetadata withAnalyzedBrightness(float analyzedBrightness) {
+        return new VideoMetadata(path, size, lastModified, durationMs, width, height, mime, profile, frameRate,
+                brightness, analyzedBrightness, flags);
+    }
+
+    /**
+     * Brightness and day/night tags from the filename conventions of VideoCatalog
+     */
+    public static int tagsFromFilename(String filename) {
+        filename = filename.toLowerCase();
+        int flags = 0;
+        if (filename.startsWith("d_")) {
+            flags |= FLAG_DAY;
+        }
+        if (filename.startsWith("n_") || filename.startsWith("dn_")) {
+            flags |= FLAG_NIGHT;
+        }
+        if (VideoCatalog.parseExplicitBrightness(filename) >= 0) {
+            flags |= FLAG_EXPLICIT_BRIGHTNESS;
+        }
+        return flags;
+    }
+
+    /**
+     * @return brightness fixed by the filename or BRIGHTNESS_UNSET
+     */
+    public static float brightnessFromFilename(String filename) {
+        float day = VideoCatalog.calculateBrightness(filename, true);
+        float night = VideoCatalog.calculateBrightness(filename, false);
+        return day == night ? day : BRIGHTNESS_UNSET;
+    }
+
+    public boolean matches(long size, long lastModified) {
+        return this.size == size && this.lastModified == lastModified;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public int getDurationMs() {
+        return durationMs;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public String getMime() {
+        return mime;
+    }
+
+    public int getProfile() {
+        return profile;
+    }
+
+    public float getFrameRate() {
+        return frameRate;
+    }
+
+    public float getBrightness() {
+        return brightness;
+    }
+
+    public boolean hasBrightness() {
+        return brightness >= 0;
+    }
+
+    public float getAnalyzedBrightness() {
+        return analyzedBrightness;
+    }
+
+    public boolean hasAnalyzedBrightness() {
+        return analyzedBrightness >= 0;
+    }
+
+    public boolean hasExplicitBrightness() {
+        return (flags & FLAG_EXPLICIT_BRIGHTNESS) != 0;
+    }
+
+    /**
+     * A b_XX tag wins. Otherwise the filename conventions or the time of day default give
+     * the brightness, and the luminance analysis scales it: the analyzed value is the level
+     * for a full brightness clip, so night and dn_ clips stay dimmer than day clips.
+     */
+    public float getBrightness(boolean isDayTime) {
+        if (hasExplicitBrightness()) {
+            return brightness;
+        }
+        float convention = hasBrightness() ? brightness
+                : isDayTime ? VideoCatalog.VIDEO_BRIGHTNESS_DAY : VideoCatalog.VIDEO_BRIGHTNESS_NIGHT;
+        if (hasAnalyzedBrightness()) {
+            return analyzedBrightness * convention / VideoCatalog.VIDEO_BRIGHTNESS_DAY;
+        }
+        return convention;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public boolean isDay() {
+        return (flags & FLAG_DAY) != 0;
+    }
+
+    public boolean isNight() {
+        return (flags & FLAG_NIGHT) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return path + " " + width + "x" + height + " " + mime + " " + durationMs + "ms " + frameRate + "fps";
+    }
+}
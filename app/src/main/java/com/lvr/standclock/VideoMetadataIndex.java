@@ -0,0 +1,175 @@
+package com.lvr.standclock;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persistent VideoMetadata by path, stored in a compact binary file and read in one pass
+ * at startup. Entries are checked against size + modification time by whoever refreshes
+ * the index, readers get the last known entry. Thread safe. Pure Java.
+ */
+public class VideoMetadataIndex {
+
+    // "VIDX"
+    private static final int MAGIC = 0x56494458;
+    private static final int VERSION = 2;
+
+    private final Map<String, VideoMetadata> entries = new HashMap<>();
+    private boolean dirty = false;
+
+    /**
+     * Read an index file, a missing, outdated or damaged file gives an empty index
+     */
+    public static VideoMetadataIndex load(File file) {
+        VideoMetadataIndex index = new VideoMetadataIndex();
+        if (!file.exists()) {
+            return index;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return index;
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                VideoMetadata entry = new VideoMetadata(in.readUTF(), in.readLong(), in.readLong(),
+                        in.readInt(), in.readInt(), in.readInt(), in.readUTF(), in.readInt(),
+                        in.readFloat(), in.readFloat(), in.readFloat(), in.readInt());
+                index.entries.put(entry.getPath(), entry);
+            }
+        } catch (IOException e) {
+            // Truncated or unreadable, nothing read is trusted
+            index.entries.clear();
+        } finally {
+            closeQuietly(in);
+        }
+        return index;
+    }
+
+    /**
+     * Write the index if it changed since it was loaded or last saved. The file is replaced
+     * atomically, a crash while saving leaves the previous index.
+     *
+     * @return true if the file was written
+     */
+    public boolean save(File file) throws IOException {
+        List<VideoMetadata> snapshot;
+        synchronized (this) {
+            if (!dirty) {
+                return false;
+            }
+            snapshot = new ArrayList<>(entries.values());
+            dirty = false;
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(snapshot.size());
+            for (VideoMetadata entry : snapshot) {
+                out.writeUTF(entry.getPath());
+                out.writeLong(entry.getSize());
+                out.writeLong(entry.getLastModified());
+                out.writeInt(entry.getDurationMs());
+                out.writeInt(entry.getWidth());
+                out.writeInt(entry.getHeight());
+                out.writeUTF(entry.getMime());
+                out.writeInt(entry.getProfile());
+                out.writeFloat(entry.getFrameRate());
+                out.writeFloat(entry.getBrightness());
+                out.writeFloat(entry.getAnalyzedBrightness());
+                out.writeInt(entry.getFlags());
+            }
+            out.close();
+            out = null;
+        } catch (IOException e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            throw e;
+        } finally {
+            closeQuietly(out);
+        }
+
+        if (!temp.renameTo(file)) {
+            synchronized (this) {
+                dirty = true;
+            }
+            throw new IOException("Cannot replace " + file);
+        }
+        return true;
+    }
+
+    /**
+     * @return last known metadata for the path, or null
+     */
+    public synchronized VideoMetadata get(String path) {
+        return entries.get(path);
+    }
+
+    /**
+     * @return metadata for the path if it is still valid for the given file size and time
+     */
+    public synchronized VideoMetadata get(String path, long size, long lastModified) {
+        VideoMetadata entry = entries.get(path);
+        return entry != null && entry.matches(size, lastModified) ? entry : null;
+    }
+
+    public synchronized void put(VideoMetadata entry) {
+        entries.put(entry.getPath(), entry);
+        dirty = true;
+    }
+
+    /**
+     * Drop entries of files that are no longer in the video folder
+     */
+    public synchronized void retainAll(Collection<String> paths) {
+        Set<String> keep = new HashSet<>(paths);
+        Iterator<String> it = entries.keySet().iterator();
+        while (it.hasNext()) {
+            if (!keep.contains(it.next())) {
+                it.remove();
+                dirty = true;
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.lvr.standclock;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the parts of the upcoming video a player needs first (header, moov, start of mdat)
+ * while the current one plays, so they come from the page cache when it is prepared.
+ * Reads are rate limited to leave the SD card bandwidth to the playing video. Counts how
+ * many prepares found their file warmed up and how much faster those were.
+ */
+public class VideoPrefetcher {
+
+    private static final String TAG = "VideoPrefetcher";
+
+    // Seconds of mdat read ahead, for files with an unknown duration a fixed size
+    private static final int PREFETCH_SECONDS = 5;
+    private static final long FALLBACK_PREFETCH_BYTES = 8L * 1024 * 1024;
+    private static final long MAX_PREFETCH_BYTES = 32L * 1024 * 1024;
+
+    private static final long BUDGET_BYTES_PER_SECOND = 4L * 1024 * 1024;
+    private static final int CHUNK_BYTES = 256 * 1024;
+
+    // Warmed files remembered, older ones are likely evicted from the page cache anyway
+    private static final int MAX_WARMED = 4;
+
+    private final HandlerThread prefetchThread;
+    private final Handler prefetchHandler;
+    private final ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_BYTES);
+
+    // A newer request cancels the one in progress
+    private final AtomicInteger generation = new AtomicInteger();
+
+    // Guarded by this
+    private final LinkedHashSet<String> warmed = new LinkedHashSet<>();
+    private int hits;
+    private int misses;
+    private int warmPrepares;
+    private int coldPrepares;
+    private long warmPrepareMillis;
+    private long coldPrepareMillis;
+
+    public VideoPrefetcher() {
+        prefetchThread = new HandlerThread("VideoPrefetch", Process.THREAD_PRIORITY_BACKGROUND);
+        prefetchThread.start();
+        prefetchHandler = new Handler(prefetchThread.getLooper());
+    }
+
+    /**
+     * Warm up the file in the background, replaces a prefetch still in progress
+     *
+     * @param durationMs duration if known, sizes the mdat read ahead, 0 otherwise
+     */
+    public void prefetch(final String path, final int durationMs) {
+        if (path == null || isWarmed(path)) {
+            return;
+        }
+        final int requested = generation.incrementAndGet();
+        prefetchHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (requested == generation.get()) {
+                    read(path, durationMs, requested);
+                }
+            }
+        });
+    }
+
+    private synchronized boolean isWarmed(String path) {
+        return warmed.contains(path);
+    }
+
+    /**
+     * Call when the player starts preparing a file
+     *
+     * @return true if the file was prefetched
+     */
+    public synchronized boolean onPrepareStarted(String path) {
+        boolean hit = warmed.remove(path);
+        if (hit) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return hit;
+    }
+
+    /**
+     * Call when the prepare of a file finished, with the result of onPrepareStarted
+     */
+    public synchronized void onPrepared(boolean hit, long prepareMillis) {
+        if (hit) {
+            warmPrepares++;
+            warmPrepareMillis += prepareMillis;
+        } else {
+            coldPrepares++;
+            coldPrepareMillis += prepareMillis;
+        }
+        Log.d(TAG, toString());
+    }
+
+    public void release() {
+        generation.incrementAndGet();
+        prefetchThread.quit();
+    }
+
+    private void read(String path, int durationMs, int requested) {
+        long start = SystemClock.uptimeMillis();
+        File file = new File(path);
+        long total = 0;
+
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            FileChannel channel = in.getChannel();
+
+            long mdatPrefix = durationMs > 0
+                    ? channel.size() * PREFETCH_SECONDS * 1000L / durationMs
+                    : FALLBACK_PREFETCH_BYTES;
+            mdatPrefix = Math.min(mdatPrefix, MAX_PREFETCH_BYTES);
+
+            for (Mp4Layout.Range range : Mp4Layout.parse(channel).getReadAheadRanges(mdatPrefix)) {
+                long offset = range.offset;
+                long end = range.offset + range.length;
+                while (offset < end) {
+                    if (requested != generation.get()) {
+                        Log.d(TAG, "Prefetch of " + file.getName() + " cancelled after " + total + " bytes");
+                        return;
+                    }
+
+                    chunk.clear();
+                    chunk.limit((int) Math.min(CHUNK_BYTES, end - offset));
+                    int read = channel.read(chunk, offset);
+                    if (read <= 0) {
+                        break;
+                    }
+                    offset += read;
+                    total += read;
+                    throttle(start, total);
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Prefetch of " + path + " failed: " + e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            return;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+
+        synchronized (this) {
+            warmed.add(path);
+            while (warmed.size() > MAX_WARMED) {
+                warmed.remove(warmed.iterator().next());
+            }
+        }
+        Log.d(TAG, "Prefetched " + (total / 1024) + "KB of " + file.getName() + " in "
+                + (SystemClock.uptimeMillis() - start) + "ms");
+    }
+
+    /**
+     * Sleep so the bytes read so far don't exceed the bandwidth budget
+     */
+    private static void throttle(long startMillis, long bytesRead) throws InterruptedException {
+        long earliest = startMillis + bytesRead * 1000 / BUDGET_BYTES_PER_SECOND;
+        long wait = earliest - SystemClock.uptimeMillis();
+        if (wait > 0) {
+            Thread.sleep(wait);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        float warmAverage = warmPrepares == 0 ? 0 : warmPrepareMillis / (float) warmPrepares;
+        float coldAverage = coldPrepares == 0 ? 0 : coldPrepareMillis / (float) coldPrepares;
+        String saved = warmPrepares > 0 && coldPrepares > 0
+                ? String.format(Locale.US, "%.0fms", coldAverage - warmAverage) : "n/a";
+        return String.format(Locale.US,
+                "Prefetch: %d hits, %d misses, prepare warm avg %.0fms, cold avg %.0fms, saved per transition %s",
+                hits, misses, warmAverage, coldAverage, saved);
+    }
+}
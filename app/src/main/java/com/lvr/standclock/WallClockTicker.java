@@ -0,0 +1,84 @@
+package com.lvr.standclock;
+
+import android.os.Handler;
+
+import java.util.TimeZone;
+
+/**
+ * Calls back on local wall-clock boundaries (e.g. every full minute) instead of polling
+ * with a fixed delay. Call resync() after the time or the time zone has been changed.
+ */
+public class WallClockTicker implements Runnable {
+
+    // Fire slightly after the boundary so the new value is already visible
+    private static final long BOUNDARY_SLACK = 20;
+
+    private final Handler handler;
+    private final long periodMillis;
+    private final Runnable callback;
+
+    private TimeZone timeZone = TimeZone.getDefault();
+    private boolean running = false;
+
+    public WallClockTicker(Handler handler, long periodMillis, Runnable callback) {
+        this.handler = handler;
+        this.periodMillis = periodMillis;
+        this.callback = callback;
+    }
+
+    public void start() {
+        running = true;
+        schedule();
+    }
+
+    public void stop() {
+        running = false;
+        handler.removeCallbacks(this);
+    }
+
+    /**
+     * Re-read the time zone and reschedule from the current time
+     */
+    public void resync() {
+        timeZone = TimeZone.getDefault();
+        handler.removeCallbacks(this);
+        if (running) {
+            schedule();
+        }
+    }
+
+    /**
+     * Index of the current period in local time, changes exactly on every boundary
+     */
+    public long currentPeriod() {
+        long now = System.currentTimeMillis();
+        return floorDiv(now + timeZone.getOffset(now), periodMillis);
+    }
+
+    public long delayToNextBoundary() {
+        long now = System.currentTimeMillis();
+        long local = now + timeZone.getOffset(now);
+        return periodMillis - (local - floorDiv(local, periodMillis) * periodMillis);
+    }
+
+    private void schedule() {
+        handler.postDelayed(this, delayToNextBoundary() + BOUNDARY_SLACK);
+    }
+
+    @Override
+    public void run() {
+        if (!running) {
+            return;
+        }
+        callback.run();
+        schedule();
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        if ((x % y != 0) && ((x < 0) != (y < 0))) {
+            q--;
+        }
+        return q;
+    }
+}
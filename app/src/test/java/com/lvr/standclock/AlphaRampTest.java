@@ -0,0 +1,30 @@
+package com.lvr.standclock;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AlphaRampTest {
+
+    private static final float DELTA = 1e-4f;
+    private static final long FADE = 1000;
+
+    @Test
+    public void interpolatesLinearly() {
+        AlphaRamp ramp = new AlphaRamp(0.8f, 0f, 1000, FADE);
+        assertEquals(0.8f, ramp.valueAt(500), DELTA);
+        assertEquals(0.4f, ramp.valueAt(1500), DELTA);
+        assertEquals(0f, ramp.valueAt(2000), DELTA);
+        assertFalse(ramp.isFinishedAt(1999));
+        assertTrue(ramp.isFinishedAt(2000));
+    }
+
+    @Test
+    public void zeroDurationJumpsToTarget() {
+        AlphaRamp ramp = new AlphaRamp(0f, 0.6f, 1000, 0);
+        assertEquals(0.6f, ramp.valueAt(1000), DELTA);
+        assertTrue(ramp.isFinishedAt(1000));
+    }
+}
@@ -0,0 +1,86 @@
+package com.lvr.standclock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Formatting and allocation checks for the per-frame clock time source.
+ */
+public class ClockFormatterTest {
+
+    private static final long MINUTE = 60000;
+    private static final long HOUR = 60 * MINUTE;
+
+    @Test
+    public void formatsHoursWithLeadingSpace() {
+        ClockFormatter formatter = new ClockFormatter();
+        formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        formatter.update(9 * HOUR + 5 * MINUTE);
+        assertEquals(" 9:05", new String(formatter.getTimeChars()));
+        assertEquals(Calendar.THURSDAY, formatter.getDayOfWeek());
+
+        formatter.update(-1);
+        assertEquals("23:59", new String(formatter.getTimeChars()));
+        assertEquals(Calendar.WEDNESDAY, formatter.getDayOfWeek());
+    }
+
+    @Test
+    public void appliesTimeZoneOffset() {
+        ClockFormatter formatter = new ClockFormatter();
+        formatter.setTimeZone(TimeZone.getTimeZone("GMT+05:30"));
+
+        formatter.update(20 * HOUR);
+        assertEquals(" 1:30", new String(formatter.getTimeChars()));
+        assertEquals(Calendar.FRIDAY, formatter.getDayOfWeek());
+    }
+
+    @Test
+    public void percentTextUsesTable() {
+        assertEquals("0%", ClockFormatter.percentText(0));
+        assertEquals("57%", ClockFormatter.percentText(57));
+        assertEquals("100%", ClockFormatter.percentText(100));
+        assertEquals("101%", ClockFormatter.percentText(101));
+    }
+
+    @Test
+    public void frameDoesNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        ClockFormatter formatter = new ClockFormatter();
+        formatter.setTimeZone(TimeZone.getTimeZone("Europe/Warsaw"));
+        long threadId = Thread.currentThread().getId();
+        long now = System.currentTimeMillis();
+
+        // Warm up so the measured loop runs compiled code
+        long sink = renderFrames(formatter, now, 100000);
+
+        long calibrationStart = threads.getThreadAllocatedBytes(threadId);
+        long calibrationEnd = threads.getThreadAllocatedBytes(threadId);
+
+        long start = threads.getThreadAllocatedBytes(threadId);
+        sink += renderFrames(formatter, now, 1000);
+        long end = threads.getThreadAllocatedBytes(threadId);
+
+        assertEquals("bytes allocated by 1000 frames (sink " + sink + ")",
+                0, (end - start) - (calibrationEnd - calibrationStart));
+    }
+
+    private static long renderFrames(ClockFormatter formatter, long now, int frames) {
+        long sink = 0;
+        for (int i = 0; i < frames; i++) {
+            formatter.update(now + i * 1000L);
+            sink += formatter.getTimeChars()[4] + ClockFormatter.percentText(i % 101).length();
+        }
+        return sink;
+    }
+}
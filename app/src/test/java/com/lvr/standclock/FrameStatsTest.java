@@ -0,0 +1,39 @@
+package com.lvr.standclock;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FrameStatsTest {
+
+    private static final long MS = 1000000L;
+    private static final float DELTA = 1e-3f;
+
+    @Test
+    public void recordsLatencyWorkAndIntervals() {
+        FrameStats stats = new FrameStats("test");
+        stats.record(1000 * MS, 1002 * MS, 1003 * MS);
+        stats.record(1016 * MS, 1036 * MS, 1040 * MS);
+
+        assertEquals(2, stats.getFrameCount());
+        assertEquals(11, stats.getAverageLatencyMillis(), DELTA);
+        assertEquals(20, stats.getMaxLatencyMillis(), DELTA);
+        assertEquals(2.5f, stats.getAverageWorkMillis(), DELTA);
+        assertEquals(4, stats.getMaxWorkMillis(), DELTA);
+        assertEquals(16, stats.getAverageIntervalMillis(), DELTA);
+        // Started 20ms after its vsync
+        assertEquals(1, stats.getJankCount());
+    }
+
+    @Test
+    public void idleGapIsNotAnInterval() {
+        FrameStats stats = new FrameStats("test");
+        stats.record(100 * MS, 100 * MS, 101 * MS);
+        stats.record(116 * MS, 116 * MS, 117 * MS);
+        stats.markIdle();
+        stats.record(5000 * MS, 5000 * MS, 5001 * MS);
+
+        assertEquals(16, stats.getMaxIntervalMillis(), DELTA);
+        assertEquals(16, stats.getAverageIntervalMillis(), DELTA);
+    }
+}
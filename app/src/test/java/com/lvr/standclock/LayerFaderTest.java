@@ -0,0 +1,106 @@
+package com.lvr.standclock;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LayerFaderTest {
+
+    private static final float DELTA = 1e-4f;
+    private static final long FADE = 1000;
+    private static final long VSYNC = 16;
+
+    // Main thread blocked for 250ms in the middle of the fade
+    private static boolean mainThreadStalled(long uptime) {
+        return uptime >= 400 && uptime < 650;
+    }
+
+    @Test
+    public void fadeKeepsDrawingThroughMainThreadStall() {
+        LayerFader fader = new LayerFader(2);
+        float[] alpha = new float[2];
+
+        // The main thread starts the fade and requests a frame, then does nothing
+        fader.fade(0, 1f, 0, FADE);
+        boolean renderRequested = true;
+
+        // The GL thread draws only when a frame was requested, the fader requests the next one
+        long lastDrawn = -1;
+        for (long vsync = 0; vsync <= FADE + 4 * VSYNC; vsync += VSYNC) {
+            if (mainThreadStalled(vsync)) {
+                // The next frame was requested by the GL thread itself
+                assertTrue(renderRequested);
+            }
+            if (renderRequested) {
+                renderRequested = fader.evaluate(vsync, alpha);
+                lastDrawn = vsync;
+            }
+        }
+
+        FadeSmoothness drawn = fader.getSmoothness(0);
+        assertEquals(drawn.toString(), VSYNC, drawn.getMaxFrameGap());
+        assertTrue(drawn.toString(), drawn.getMaxStep() <= VSYNC / (float) FADE + DELTA);
+        assertEquals(FADE / VSYNC + 2, drawn.getFrames());
+        // Stopped right after the frame that finished the fade
+        assertEquals((FADE / VSYNC + 1) * VSYNC, lastDrawn);
+        assertTrue(fader.isFadeFinished(0));
+        assertEquals(1f, alpha[0], DELTA);
+    }
+
+    @Test
+    public void alphaSetByMainThreadStopsDuringStall() {
+        LayerFader fader = new LayerFader(2);
+        float[] alpha = new float[2];
+        AlphaRamp ramp = new AlphaRamp(0f, 1f, 0, FADE);
+        FadeSmoothness drawn = new FadeSmoothness();
+
+        // A main thread animator sets the alpha per frame and requests each frame itself
+        for (long vsync = 0; vsync <= FADE; vsync += VSYNC) {
+            boolean renderRequested = false;
+            if (!mainThreadStalled(vsync)) {
+                renderRequested = fader.setAlpha(0, ramp.valueAt(vsync));
+            }
+            if (renderRequested) {
+                assertFalse(fader.evaluate(vsync, alpha));
+                drawn.record(vsync, alpha[0]);
+            }
+        }
+
+        assertTrue(drawn.toString(), drawn.getMaxFrameGap() >= 250);
+        assertTrue(drawn.toString(), drawn.getMaxStep() > 0.2f);
+    }
+
+    @Test
+    public void replacedFadeContinuesFromCurrentAlpha() {
+        LayerFader fader = new LayerFader(1);
+        float[] alpha = new float[1];
+
+        fader.fade(0, 1f, 0, FADE);
+        for (long vsync = 0; vsync <= 496; vsync += VSYNC) {
+            fader.evaluate(vsync, alpha);
+        }
+        // Reversed between two frames, from where the first fade is at that moment
+        fader.fade(0, 0f, 500, FADE);
+        fader.evaluate(512, alpha);
+        assertEquals(0.5f - 0.5f * 12 / FADE, alpha[0], DELTA);
+        assertEquals(1, fader.getSmoothness(0).getFrames());
+
+        fader.evaluate(1000, alpha);
+        assertEquals(0.25f, alpha[0], DELTA);
+    }
+
+    @Test
+    public void setAlphaCancelsFade() {
+        LayerFader fader = new LayerFader(1);
+        float[] alpha = new float[1];
+
+        fader.fade(0, 1f, 0, FADE);
+        assertTrue(fader.evaluate(100, alpha));
+        assertTrue(fader.setAlpha(0, 0.3f));
+        assertFalse(fader.evaluate(116, alpha));
+        assertEquals(0.3f, alpha[0], DELTA);
+        assertFalse(fader.setAlpha(0, 0.3f));
+    }
+}
@@ -0,0 +1,109 @@
+package com.lvr.standclock;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LeadTimeEstimatorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String HEVC_4K = "video/hevc@2160";
+
+    @Test
+    public void usesDefaultWithoutSamples() {
+        LeadTimeEstimator estimator = new LeadTimeEstimator();
+        assertEquals(1800, estimator.getLead(LeadTimeEstimator.PREPARE, "/v/a.mp4", HEVC_4K, 1800));
+    }
+
+    @Test
+    public void convergesOnStableLatency() {
+        LeadTimeEstimator estimator = new LeadTimeEstimator();
+        for (int i = 0; i < 40; i++) {
+            estimator.record(LeadTimeEstimator.PREPARE, "/v/a.mp4", HEVC_4K, 400);
+        }
+        long lead = estimator.getLead(LeadTimeEstimator.PREPARE, "/v/a.mp4", HEVC_4K, 1800);
+        // Deviation decayed, little more than the latency plus the margin is left
+        assertTrue(lead >= 400 + LeadTimeEstimator.SAFETY_MARGIN);
+        assertTrue(lead < 400 + LeadTimeEstimator.SAFETY_MARGIN + 20);
+    }
+
+    @Test
+    public void jitterWidensLead() {
+        LeadTimeEstimator stable = new LeadTimeEstimator();
+        LeadTimeEstimator jittery = new LeadTimeEstimator();
+        for (int i = 0; i < 40; i++) {
+            stable.record(LeadTimeEstimator.PREPARE, "/v/a.mp4", HEVC_4K, 500);
+            jittery.record(LeadTimeEstimator.PREPARE, "/v/a.mp4", HEVC_4K, i % 2 == 0 ? 200 : 800);
+        }
+        assertTrue(jittery.getLead(LeadTimeEstimator.PREPARE, "/v/a.mp4", HEVC_4K, 0)
+                > stable.getLead(LeadTimeEstimator.PREPARE, "/v/a.mp4", HEVC_4K, 0) + 500);
+    }
+
+    @Test
+    public void newFileUsesItsClass() {
+        LeadTimeEstimator estimator = new LeadTimeEstimator();
+        for (int i = 0; i < 20; i++) {
+            estimator.record(LeadTimeEstimator.PREPARE, "/v/a.mp4", HEVC_4K, 2500);
+            estimator.record(LeadTimeEstimator.PREPARE, "/v/small.mp4", "video/avc@720", 100);
+        }
+        long lead = estimator.getLead(LeadTimeEstimator.PREPARE, "/v/b.mp4", HEVC_4K, 1800);
+        assertTrue(lead > 2500);
+        // Start latencies are kept apart
+        assertEquals(300, estimator.getLead(LeadTimeEstimator.START, "/v/a.mp4", HEVC_4K, 300));
+    }
+
+    @Test
+    public void classifiesByCodecAndResolution() {
+        VideoMetadata uhd = new VideoMetadata("/v/a.mp4", 1, 1, 1000, 3840, 2160, "video/hevc", 1, 30f,
+                VideoMetadata.BRIGHTNESS_UNSET, VideoMetadata.BRIGHTNESS_UNSET, 0);
+        VideoMetadata portrait = new VideoMetadata("/v/b.mp4", 1, 1, 1000, 1080, 1920, "video/avc", 1, 30f,
+                VideoMetadata.BRIGHTNESS_UNSET, VideoMetadata.BRIGHTNESS_UNSET, 0);
+        assertEquals(HEVC_4K, LeadTimeEstimator.classOf(uhd));
+        assertEquals("video/avc@1080", LeadTimeEstimator.classOf(portrait));
+        assertEquals("unknown", LeadTimeEstimator.classOf(null));
+    }
+
+    @Test
+    public void persistsAcrossRestarts() throws IOException {
+        File file = new File(folder.getRoot(), "lead_times.bin");
+        LeadTimeEstimator estimator = new LeadTimeEstimator();
+        for (int i = 0; i < 10; i++) {
+            estimator.record(LeadTimeEstimator.START, "/v/a.mp4", HEVC_4K, 150 + i);
+        }
+        estimator.save(file, Collections.<String>emptyList());
+
+        LeadTimeEstimator restored = new LeadTimeEstimator();
+        restored.load(file);
+        assertEquals(estimator.getLead(LeadTimeEstimator.START, "/v/a.mp4", HEVC_4K, 0),
+                restored.getLead(LeadTimeEstimator.START, "/v/a.mp4", HEVC_4K, 0));
+        assertEquals(10, restored.getSampleCount(LeadTimeEstimator.START, "/v/a.mp4"));
+    }
+
+    @Test
+    public void dropsVideosMissingFromCatalog() throws IOException {
+        File file = new File(folder.getRoot(), "lead_times.bin");
+        LeadTimeEstimator estimator = new LeadTimeEstimator();
+        for (int i = 0; i < 10; i++) {
+            estimator.record(LeadTimeEstimator.PREPARE, "/v/a.mp4", HEVC_4K, 400);
+            estimator.record(LeadTimeEstimator.PREPARE, "/v/gone.mp4", HEVC_4K, 2400);
+        }
+        estimator.save(file, Arrays.asList("/v/a.mp4", "/v/b.mp4"));
+
+        LeadTimeEstimator restored = new LeadTimeEstimator();
+        restored.load(file);
+        assertEquals(10, restored.getSampleCount(LeadTimeEstimator.PREPARE, "/v/a.mp4"));
+        assertEquals(0, restored.getSampleCount(LeadTimeEstimator.PREPARE, "/v/gone.mp4"));
+        // The class estimate still has the samples of the removed video
+        assertTrue(restored.getLead(LeadTimeEstimator.PREPARE, "/v/b.mp4", HEVC_4K, 0) > 400);
+    }
+}
@@ -0,0 +1,59 @@
+package com.lvr.standclock;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LuminanceStatsTest {
+
+    private static int[] fill(int count, int color) {
+        int[] pixels = new int[count];
+        for (int i = 0; i < count; i++) {
+            pixels[i] = color;
+        }
+        return pixels;
+    }
+
+    @Test
+    public void measuresMeanAndPercentile() {
+        LuminanceStats stats = new LuminanceStats();
+        // 90 black, 10 white pixels
+        stats.addPixels(fill(90, 0xff000000), 0, 90);
+        stats.addPixels(fill(10, 0xffffffff), 0, 10);
+
+        assertEquals(100, stats.getSampleCount());
+        assertEquals(0.1f, stats.getMean(), 1e-3f);
+        assertEquals(0f, stats.getPercentile(0.9f), 1e-3f);
+        assertEquals(1f, stats.getPercentile(0.95f), 1e-3f);
+    }
+
+    @Test
+    public void darkVideoKeepsFullBrightness() {
+        LuminanceStats stats = new LuminanceStats();
+        stats.addPixels(fill(100, 0xff202020), 0, 100);
+
+        assertEquals(1f, stats.getBrightnessTarget(), 1e-3f);
+    }
+
+    @Test
+    public void brightVideoIsDimmed() {
+        LuminanceStats stats = new LuminanceStats();
+        stats.addPixels(fill(100, 0xffe6e6e6), 0, 100);
+
+        // Mean 0.9 is brought down to the target mean
+        assertEquals(LuminanceStats.TARGET_MEAN / 0.902f, stats.getBrightnessTarget(), 1e-2f);
+    }
+
+    @Test
+    public void highlightsLimitBrightness() {
+        // Dark mean but p95 highlights above the target
+        assertEquals(0.9f, LuminanceStats.brightnessFor(0.2f, 1f), 1e-3f);
+        // Mean and highlights within the targets
+        assertEquals(1f, LuminanceStats.brightnessFor(0.3f, 0.8f), 1e-3f);
+    }
+
+    @Test
+    public void emptyStatsKeepFullBrightness() {
+        assertEquals(1f, new LuminanceStats().getBrightnessTarget(), 1e-3f);
+    }
+}
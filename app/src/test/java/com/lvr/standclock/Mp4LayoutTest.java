@@ -0,0 +1,116 @@
+package com.lvr.standclock;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class Mp4LayoutTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void box(DataOutputStream out, String type, int payload) throws IOException {
+        out.writeInt(8 + payload);
+        out.writeBytes(type);
+        out.write(new byte[payload]);
+    }
+
+    private Mp4Layout parse(byte[] content) throws IOException {
+        File file = folder.newFile();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(content);
+        out.close();
+
+        FileInputStream in = new FileInputStream(file);
+        try {
+            return Mp4Layout.parse(in.getChannel());
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void findsMoovAfterMdat() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        box(out, "ftyp", 16);
+        box(out, "free", 8);
+        box(out, "mdat", 10000);
+        box(out, "moov", 500);
+
+        Mp4Layout layout = parse(bytes.toByteArray());
+        assertTrue(layout.isValid());
+        assertEquals(4, layout.getBoxes().size());
+        assertEquals(24 + 16 + 10008, layout.getBox("moov").offset);
+
+        List<Mp4Layout.Range> ranges = layout.getReadAheadRanges(4096);
+        // ftyp, mdat prefix and moov, free is skipped
+        assertEquals(3, ranges.size());
+        assertEquals(0, ranges.get(0).offset);
+        assertEquals(24, ranges.get(0).length);
+        assertEquals(40, ranges.get(1).offset);
+        assertEquals(4096, ranges.get(1).length);
+        assertEquals(508, ranges.get(2).length);
+    }
+
+    @Test
+    public void readsLargeSizeBoxes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        box(out, "ftyp", 16);
+        box(out, "moov", 100);
+        // 64 bit size
+        out.writeInt(1);
+        out.writeBytes("mdat");
+        out.writeLong(16 + 300);
+        out.write(new byte[300]);
+
+        Mp4Layout layout = parse(bytes.toByteArray());
+        assertEquals(316, layout.getBox("mdat").size);
+        // Prefix larger than mdat is capped
+        List<Mp4Layout.Range> ranges = layout.getReadAheadRanges(100000);
+        assertEquals(316, ranges.get(2).length);
+    }
+
+    @Test
+    public void unknownFormatReadsFileStart() throws IOException {
+        byte[] content = new byte[5000];
+        content[0] = 0x1a;
+        content[1] = 0x45;
+
+        Mp4Layout layout = parse(content);
+        assertFalse(layout.isValid());
+        List<Mp4Layout.Range> ranges = layout.getReadAheadRanges(1000);
+        assertEquals(1, ranges.size());
+        assertEquals(0, ranges.get(0).offset);
+        assertEquals(1000, ranges.get(0).length);
+    }
+
+    @Test
+    public void stopsAtTruncatedBox() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        box(out, "ftyp", 16);
+        box(out, "moov", 100);
+        // Claims more bytes than the file has
+        out.writeInt(100000);
+        out.writeBytes("mdat");
+        out.write(new byte[50]);
+
+        Mp4Layout layout = parse(bytes.toByteArray());
+        assertTrue(layout.isValid());
+        assertEquals(2, layout.getBoxes().size());
+    }
+}
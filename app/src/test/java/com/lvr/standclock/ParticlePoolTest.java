@@ -0,0 +1,84 @@
+package com.lvr.standclock;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ParticlePoolTest {
+
+    private static final float DELTA = 1e-3f;
+
+    @Test
+    public void spawnStopsAtCapacity() {
+        ParticlePool pool = new ParticlePool(2);
+        assertEquals(0, pool.spawn(0, 0, 0, 0, 0, 0, 10, 0));
+        assertEquals(1, pool.spawn(0, 0, 0, 0, 0, 0, 10, 0));
+        assertEquals(-1, pool.spawn(0, 0, 0, 0, 0, 0, 10, 0));
+        assertEquals(2, pool.getCount());
+    }
+
+    @Test
+    public void killMovesLastSpriteIntoSlot() {
+        ParticlePool pool = new ParticlePool(3);
+        pool.spawn(1, 0, 0, 0, 0, 0, 10, 0);
+        pool.spawn(2, 0, 0, 0, 0, 0, 10, 0);
+        pool.spawn(3, 0, 0, 0, 0, 0, 10, 0);
+
+        pool.kill(0);
+
+        assertEquals(2, pool.getCount());
+        assertEquals(3, pool.getX(0), DELTA);
+        assertEquals(2, pool.getX(1), DELTA);
+    }
+
+    @Test
+    public void updateAdvancesPositionAngleAndFrame() {
+        ParticlePool pool = new ParticlePool(1);
+        pool.spawn(10, 20, 100, -50, 0, 90, 10, 10);
+
+        pool.update(0.5f, 4, 11);
+
+        assertEquals(60, pool.getX(0), DELTA);
+        assertEquals(-5, pool.getY(0), DELTA);
+        assertEquals(45, pool.getAngle(0), DELTA);
+        // 10 + 2 frames wraps around the 11 frame cycle
+        assertEquals(1, pool.getFrame(0));
+    }
+
+    @Test
+    public void writeQuadsRotatesAroundCenter() {
+        ParticlePool pool = new ParticlePool(1);
+        pool.spawn(100, 100, 0, 0, 90, 0, 20, 5);
+        float[] vertices = new float[ParticlePool.FLOATS_PER_SPRITE];
+        float[] texCoords = new float[ParticlePool.FLOATS_PER_SPRITE];
+
+        assertEquals(8, pool.writeQuads(vertices, texCoords, 64, 4));
+
+        // Top left corner ends up at the top right after a quarter turn
+        assertEquals(110, vertices[0], DELTA);
+        assertEquals(90, vertices[1], DELTA);
+        // Frame 5 is in the second row of a 4 column atlas
+        assertEquals(64, texCoords[0], DELTA);
+        assertEquals(64, texCoords[1], DELTA);
+        assertEquals(128, texCoords[4], DELTA);
+        assertEquals(128, texCoords[5], DELTA);
+    }
+
+    @Test
+    public void boundsCoverRotatedSprites() {
+        ParticlePool pool = new ParticlePool(2);
+        float[] bounds = new float[4];
+        assertFalse(pool.getBounds(bounds));
+
+        pool.spawn(100, 100, 0, 0, 45, 0, 20, 0);
+        pool.spawn(300, 50, 0, 0, 0, 0, 10, 0);
+        assertTrue(pool.getBounds(bounds));
+        // The corners of the 45 degree sprite reach 10 * sqrt(2) from its center
+        assertEquals(100 - 14.14f, bounds[0], 0.01f);
+        assertEquals(50 - 7.07f, bounds[1], 0.01f);
+        assertEquals(300 + 7.07f, bounds[2], 0.01f);
+        assertEquals(100 + 14.14f, bounds[3], 0.01f);
+    }
+}
@@ -0,0 +1,46 @@
+package com.lvr.standclock;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PlaybackClockTest {
+
+    @Test
+    public void predictsFromSingleSampleAtNormalSpeed() {
+        PlaybackClock clock = new PlaybackClock();
+        clock.addSample(10000, 2000);
+
+        assertEquals(10000 + 26800, clock.getUptimeAt(28800));
+        assertEquals(3000, clock.getPositionAt(11000));
+    }
+
+    @Test
+    public void measuresRateBetweenSamples() {
+        PlaybackClock clock = new PlaybackClock();
+        clock.addSample(1000, 500);
+        clock.addSample(3000, 2500 + 200);
+
+        assertTrue(clock.hasMeasuredRate());
+        assertEquals(1.1f, clock.getRate(), 1e-4f);
+        // 1100ms of video from the latest sample
+        assertEquals(3000 + 1000, clock.getUptimeAt(2700 + 1100));
+    }
+
+    @Test
+    public void ignoresStartupAndPauses() {
+        PlaybackClock clock = new PlaybackClock();
+        // Started but no frame yet
+        clock.addSample(1000, 0);
+        clock.addSample(3000, 1800);
+        assertFalse(clock.hasMeasuredRate());
+
+        // Paused for 10 seconds, the gap is not playback speed
+        clock.clearAnchor();
+        clock.addSample(15000, 1800);
+        assertFalse(clock.hasMeasuredRate());
+        assertEquals(15000 + 1000, clock.getUptimeAt(2800));
+    }
+}
@@ -0,0 +1,37 @@
+package com.lvr.standclock;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class PlaybackStateTest {
+
+    @Test
+    public void playingPositionAdvancesFromSample() {
+        PlaybackState state = new PlaybackState(true, true, 30000, 2000, 10000);
+        assertEquals(2000, state.getPositionAt(10000));
+        assertEquals(3500, state.getPositionAt(11500));
+        // Clock read before the sample
+        assertEquals(2000, state.getPositionAt(9000));
+    }
+
+    @Test
+    public void positionStopsAtDuration() {
+        PlaybackState state = new PlaybackState(true, true, 30000, 29000, 10000);
+        assertEquals(30000, state.getPositionAt(15000));
+    }
+
+    @Test
+    public void pausedPositionStays() {
+        PlaybackState state = new PlaybackState(true, false, 30000, 2000, 10000);
+        assertEquals(2000, state.getPositionAt(20000));
+    }
+
+    @Test
+    public void idleIsNotPlaying() {
+        assertFalse(PlaybackState.IDLE.isPrepared());
+        assertFalse(PlaybackState.IDLE.isPlaying());
+        assertEquals(0, PlaybackState.IDLE.getPositionAt(1000));
+    }
+}
@@ -0,0 +1,122 @@
+package com.lvr.standclock;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PlaylistSchedulerTest {
+
+    private static final List<String> VIDEOS = Arrays.asList(
+            "/v/d_a.mp4", "/v/d_b.mp4", "/v/d_c.mp4", "/v/d_d.mp4",
+            "/v/n_a.mp4", "/v/n_b.mp4", "/v/dn_c.mp4");
+
+    private static PlaylistScheduler scheduler(long seed) {
+        return new PlaylistScheduler(new VideoCatalog(VIDEOS), seed);
+    }
+
+    @Test
+    public void everyVideoOncePerCycle() {
+        PlaylistScheduler scheduler = scheduler(1);
+        for (int cycle = 0; cycle < 20; cycle++) {
+            Set<String> picked = new HashSet<>();
+            for (int i = 0; i < 4; i++) {
+                String pick = scheduler.next(true);
+                assertTrue(pick.contains("/d_"));
+                picked.add(pick);
+            }
+            assertEquals(4, picked.size());
+        }
+    }
+
+    @Test
+    public void neverRepeatsBackToBack() {
+        PlaylistScheduler scheduler = scheduler(2);
+        String previous = null;
+        for (int i = 0; i < 300; i++) {
+            // Switch lists now and then, the avoidance works across lists too
+            boolean isDay = (i / 7) % 2 == 0;
+            String pick = scheduler.next(isDay);
+            assertNotEquals(previous, pick);
+            previous = pick;
+        }
+    }
+
+    @Test
+    public void peekReturnsNextPick() {
+        PlaylistScheduler scheduler = scheduler(3);
+        for (int i = 0; i < 50; i++) {
+            String upcoming = scheduler.peek(false);
+            assertEquals(upcoming, scheduler.next(false));
+        }
+    }
+
+    @Test
+    public void sameSeedSameSequence() {
+        PlaylistScheduler first = scheduler(42);
+        PlaylistScheduler second = scheduler(42);
+        List<String> a = new ArrayList<>();
+        List<String> b = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            a.add(first.next(i % 3 != 0));
+            b.add(second.next(i % 3 != 0));
+        }
+        assertEquals(a, b);
+    }
+
+    @Test
+    public void fallsBackToAllVideos() {
+        PlaylistScheduler scheduler = new PlaylistScheduler(new VideoCatalog(Arrays.asList("/v/x.mp4", "/v/y.mp4")), 4);
+        Set<String> picked = new HashSet<>();
+        picked.add(scheduler.next(true));
+        picked.add(scheduler.next(false));
+        assertEquals(2, picked.size());
+
+        assertNull(new PlaylistScheduler(5).next(true));
+    }
+
+    @Test
+    public void concurrentPicksStayBalanced() throws InterruptedException {
+        final PlaylistScheduler scheduler = scheduler(6);
+        final List<String> picks = new ArrayList<>();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 250; i++) {
+                        String pick = scheduler.next(true);
+                        synchronized (picks) {
+                            picks.add(pick);
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // 1000 picks are 250 complete cycles of the 4 day videos
+        Map<String, Integer> counts = new HashMap<>();
+        for (String pick : picks) {
+            Integer count = counts.get(pick);
+            counts.put(pick, count == null ? 1 : count + 1);
+        }
+        assertEquals(4, counts.size());
+        for (Integer count : counts.values()) {
+            assertEquals(250, count.intValue());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.lvr.standclock;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SpiderScheduleTest {
+
+    @Test
+    public void noWakeupOutsideHalloween() {
+        assertEquals(SpiderSchedule.NO_WAKEUP,
+                SpiderSchedule.getWakeupDelay(true, IDisplayMode.CalendarMode.Neutral, false, 5000, 1000));
+        assertEquals(SpiderSchedule.NO_WAKEUP,
+                SpiderSchedule.getWakeupDelay(true, IDisplayMode.CalendarMode.Christmas, false, 5000, 1000));
+        // Mode not set yet
+        assertEquals(SpiderSchedule.NO_WAKEUP,
+                SpiderSchedule.getWakeupDelay(true, null, false, 5000, 1000));
+    }
+
+    @Test
+    public void noWakeupWhileDetachedOrRunning() {
+        assertEquals(SpiderSchedule.NO_WAKEUP,
+                SpiderSchedule.getWakeupDelay(false, IDisplayMode.CalendarMode.Halloween, false, 5000, 1000));
+        assertEquals(SpiderSchedule.NO_WAKEUP,
+                SpiderSchedule.getWakeupDelay(true, IDisplayMode.CalendarMode.Halloween, true, 5000, 1000));
+    }
+
+    @Test
+    public void halloweenWakesUpAtNextSpiderTime() {
+        assertEquals(4000,
+                SpiderSchedule.getWakeupDelay(true, IDisplayMode.CalendarMode.Halloween, false, 5000, 1000));
+        // Overdue runs start right away
+        assertEquals(0,
+                SpiderSchedule.getWakeupDelay(true, IDisplayMode.CalendarMode.Halloween, false, 5000, 9000));
+    }
+}
@@ -0,0 +1,65 @@
+package com.lvr.standclock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Binary search and memoization of the text-fit solver, with a linear fake font.
+ */
+public class TextFitSolverTest {
+
+    private static final String TEMPLATE = "88:88";
+
+    // Every glyph is 0.6 x 1.0 of the text size
+    private static final TextFitSolver.Measurer FAKE_FONT = new TextFitSolver.Measurer() {
+        @Override
+        public boolean fits(float textSize, String template, int width, int height) {
+            return (int) (textSize * 0.6f * template.length()) <= width && (int) textSize <= height;
+        }
+    };
+
+    @Test
+    public void matchesLinearSearch() {
+        int[][] containers = {{1280, 800}, {800, 1280}, {3840, 2160}, {320, 40}, {17, 9}};
+
+        for (int[] container : containers) {
+            TextFitSolver solver = new TextFitSolver(FAKE_FONT);
+            float size = solver.solve(container[0], container[1], this, TEMPLATE);
+            assertEquals(linearSearch(container[0], container[1]), size, 0);
+        }
+    }
+
+    @Test
+    public void memoizesPerContainerTypefaceAndTemplate() {
+        TextFitSolver solver = new TextFitSolver(FAKE_FONT);
+        Object typeface = new Object();
+
+        float first = solver.solve(3840, 2160, typeface, TEMPLATE);
+        int measures = solver.getMeasureCount();
+        float second = solver.solve(3840, 2160, typeface, TEMPLATE);
+
+        assertEquals(first, second, 0);
+        assertEquals(measures, solver.getMeasureCount());
+
+        solver.solve(3840, 2160, new Object(), TEMPLATE);
+        solver.solve(1920, 1080, typeface, TEMPLATE);
+        solver.solve(3840, 2160, typeface, "88");
+        assertTrue(solver.getMeasureCount() > measures * 3);
+    }
+
+    @Test
+    public void emptyContainerGivesZero() {
+        TextFitSolver solver = new TextFitSolver(FAKE_FONT);
+        assertEquals(0, solver.solve(0, 0, this, TEMPLATE), 0);
+    }
+
+    private static float linearSearch(int width, int height) {
+        int size = 0;
+        while (FAKE_FONT.fits(size + 1, TEMPLATE, width, height)) {
+            size++;
+        }
+        return size;
+    }
+}
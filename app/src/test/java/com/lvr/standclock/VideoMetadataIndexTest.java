@@ -0,0 +1,122 @@
+package com.lvr.standclock;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class VideoMetadataIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static VideoMetadata entry(String path, long size, long lastModified) {
+        String filename = new File(path).getName();
+        return new VideoMetadata(path, size, lastModified, 28800, 1920, 1080, "video/avc", 8, 29.97f,
+                VideoMetadata.brightnessFromFilename(filename), VideoMetadata.BRIGHTNESS_UNSET,
+                VideoMetadata.tagsFromFilename(filename));
+    }
+
+    @Test
+    public void roundTripsThroughFile() throws IOException {
+        File file = folder.newFile("index.bin");
+        VideoMetadataIndex index = new VideoMetadataIndex();
+        index.put(entry("/videos/d_snow.mp4", 1000, 42));
+        index.put(entry("/videos/dn_fire_b_30.mp4", 2000, 43));
+
+        assertTrue(index.save(file));
+        // Nothing changed, nothing written
+        assertFalse(index.save(file));
+
+        VideoMetadataIndex loaded = VideoMetadataIndex.load(file);
+        assertEquals(2, loaded.size());
+        assertFalse(loaded.isDirty());
+
+        VideoMetadata day = loaded.get("/videos/d_snow.mp4", 1000, 42);
+        assertNotNull(day);
+        assertEquals(28800, day.getDurationMs());
+        assertEquals(1920, day.getWidth());
+        assertEquals("video/avc", day.getMime());
+        assertEquals(29.97f, day.getFrameRate(), 1e-4f);
+        assertTrue(day.isDay());
+        assertEquals(1.0f, day.getBrightness(false), 1e-4f);
+
+        VideoMetadata night = loaded.get("/videos/dn_fire_b_30.mp4");
+        assertTrue(night.isNight());
+        assertEquals(0.3f, night.getBrightness(true), 1e-4f);
+    }
+
+    @Test
+    public void rejectsChangedFiles() {
+        VideoMetadataIndex index = new VideoMetadataIndex();
+        index.put(entry("/videos/clip.mp4", 1000, 42));
+
+        assertNull(index.get("/videos/clip.mp4", 1001, 42));
+        assertNull(index.get("/videos/clip.mp4", 1000, 43));
+        assertNotNull(index.get("/videos/clip.mp4", 1000, 42));
+
+        // No filename brightness, falls back to the time of day
+        VideoMetadata clip = index.get("/videos/clip.mp4");
+        assertFalse(clip.hasBrightness());
+        assertEquals(VideoCatalog.VIDEO_BRIGHTNESS_NIGHT, clip.getBrightness(false), 1e-4f);
+    }
+
+    @Test
+    public void explicitBrightnessWinsOverAnalysis() {
+        VideoMetadata tagged = entry("/videos/dn_fire_b_30.mp4", 1, 1).withAnalyzedBrightness(0.7f);
+        assertEquals(0.3f, tagged.getBrightness(true), 1e-4f);
+
+        // The dn_ convention scales the analysis
+        VideoMetadata darkened = entry("/videos/dn_fire.mp4", 1, 1).withAnalyzedBrightness(0.7f);
+        assertEquals(0.35f, darkened.getBrightness(false), 1e-4f);
+    }
+
+    @Test
+    public void analyzedBrightnessIsDimmedAtNight() {
+        VideoMetadata clip = entry("/videos/beach.mp4", 1, 1).withAnalyzedBrightness(0.6f);
+        assertEquals(0.6f, clip.getBrightness(true), 1e-4f);
+        assertEquals(0.6f * VideoCatalog.VIDEO_BRIGHTNESS_NIGHT, clip.getBrightness(false), 1e-4f);
+
+        // n_ clips are made for the night and keep the analyzed level
+        VideoMetadata nightClip = entry("/videos/n_stars.mp4", 1, 1).withAnalyzedBrightness(0.6f);
+        assertEquals(0.6f, nightClip.getBrightness(false), 1e-4f);
+    }
+
+    @Test
+    public void dropsRemovedFiles() {
+        VideoMetadataIndex index = new VideoMetadataIndex();
+        index.put(entry("/videos/a.mp4", 1, 1));
+        index.put(entry("/videos/b.mp4", 1, 1));
+
+        index.retainAll(Arrays.asList("/videos/b.mp4"));
+
+        assertEquals(1, index.size());
+        assertNull(index.get("/videos/a.mp4"));
+    }
+
+    @Test
+    public void damagedFileGivesEmptyIndex() throws IOException {
+        File file = folder.newFile("index.bin");
+        VideoMetadataIndex index = new VideoMetadataIndex();
+        index.put(entry("/videos/a.mp4", 1, 1));
+        index.save(file);
+
+        // Cut off in the middle of the entry
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(20);
+        raf.close();
+
+        assertEquals(0, VideoMetadataIndex.load(file).size());
+        assertEquals(0, VideoMetadataIndex.load(new File(folder.getRoot(), "missing.bin")).size());
+    }
+}
@@ -0,0 +1,44 @@
+// JMH benchmarks for the pure-Java parts of the app, runs on a plain JVM without a device:
+//   ./gradlew :benchmark:jmh
+// Results are written as JSON to benchmark/build/results/jmh/results.json
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+sourceSets {
+    // App classes compiled straight from the app sources. Only list classes that
+    // don't touch the Android framework on the benchmarked code paths.
+    create("core") {
+        java {
+            srcDir("../app/src/main/java")
+            srcDir("src/stubs/java")
+            include(
+                "com/lvr/standclock/ClockFormatter.java",
+                "com/lvr/standclock/ParticlePool.java",
+                "com/lvr/standclock/SunriseSunsetCalculation.java",
+                "com/lvr/standclock/TextFitSolver.java",
+                "com/lvr/standclock/VideoCatalog.java",
+                "android/location/Location.java",
+            )
+        }
+    }
+}
+
+dependencies {
+    jmhImplementation(sourceSets["core"].output)
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+}
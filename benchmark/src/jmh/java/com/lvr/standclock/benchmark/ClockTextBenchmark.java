@@ -0,0 +1,96 @@
+package com.lvr.standclock.benchmark;
+
+import com.lvr.standclock.ClockFormatter;
+import com.lvr.standclock.TextFitSolver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Font fitting and per-frame time formatting of ClockView.
+ * Paint isn't available off-device, so text is measured with a synthetic
+ * monospace metric that has the proportions of the segments font.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ClockTextBenchmark {
+
+    private static final String TEMPLATE = "88:88";
+
+    private static final TextFitSolver.Measurer SEGMENT_METRICS = new TextFitSolver.Measurer() {
+        @Override
+        public boolean fits(float textSize, String template, int width, int height) {
+            return (int) (textSize * 0.55f * template.length()) <= width && (int) (textSize * 0.72f) <= height;
+        }
+    };
+
+    @Param({"1280x800", "3840x2160"})
+    public String screen;
+
+    private int width;
+    private int height;
+    private final Object typeface = new Object();
+    private TextFitSolver memoizedSolver;
+    private ClockFormatter formatter;
+    private long now;
+
+    @Setup
+    public void setup() {
+        String[] size = screen.split("x");
+        width = Integer.parseInt(size[0]);
+        height = Integer.parseInt(size[1]);
+
+        memoizedSolver = new TextFitSolver(SEGMENT_METRICS);
+        memoizedSolver.solve(width, height, typeface, TEMPLATE);
+
+        formatter = new ClockFormatter();
+        formatter.setTimeZone(TimeZone.getTimeZone("Europe/Warsaw"));
+        now = System.currentTimeMillis();
+    }
+
+    /**
+     * The original +10 / -1 stepping search, as a baseline
+     */
+    @Benchmark
+    public float fontFitLinear() {
+        int stage = 1;
+        float textSize = 0;
+
+        while (stage < 3) {
+            if (stage == 1) textSize += 10;
+            else if (stage == 2) textSize -= 1;
+
+            boolean fits = SEGMENT_METRICS.fits(textSize, TEMPLATE, width, height);
+            if (stage == 1 && !fits) stage++;
+            else if (stage == 2 && fits) stage++;
+        }
+        return textSize;
+    }
+
+    @Benchmark
+    public float fontFitBinarySearch() {
+        return new TextFitSolver(SEGMENT_METRICS).solve(width, height, typeface, TEMPLATE);
+    }
+
+    @Benchmark
+    public float fontFitMemoized() {
+        return memoizedSolver.solve(width, height, typeface, TEMPLATE);
+    }
+
+    @Benchmark
+    public char formatTime() {
+        now += 1000;
+        formatter.update(now);
+        return formatter.getTimeChars()[4];
+    }
+}
@@ -0,0 +1,99 @@
+package com.lvr.standclock.benchmark;
+
+import com.lvr.standclock.ParticlePool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU side of one particle frame: advance the pool by 1/60s, wrap sprites that left
+ * the screen and build the vertex batch. Reported in ms/frame against sprite count,
+ * the GPU side of the single drawVertices call isn't included.
+ * unbatchedFrame is the hardware renderer path before API 29: the pool is capped at
+ * ParticlePool.MAX_UNBATCHED_SPRITES and each sprite becomes a draw call of its own,
+ * it returns the number of draw calls of the frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParticleBenchmark {
+
+    private static final float FRAME_SECONDS = 1 / 60f;
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 800;
+    private static final int CELL_SIZE = 64;
+    private static final int FRAMES = 11;
+
+    @Param({"100", "300", "1000", "3000"})
+    public int spriteCount;
+
+    private ParticlePool pool;
+    private ParticlePool unbatchedPool;
+    private float[] vertices;
+    private float[] texCoords;
+    // Per sprite draw call arguments: src rect left/top, dst rect, rotation
+    private final float[] drawCall = new float[7];
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setup() {
+        pool = new ParticlePool(spriteCount);
+        vertices = new float[spriteCount * ParticlePool.FLOATS_PER_SPRITE];
+        texCoords = new float[spriteCount * ParticlePool.FLOATS_PER_SPRITE];
+        fill(pool, spriteCount);
+        unbatchedPool = new ParticlePool(spriteCount);
+        fill(unbatchedPool, Math.min(spriteCount, ParticlePool.MAX_UNBATCHED_SPRITES));
+    }
+
+    private void fill(ParticlePool target, int count) {
+        for (int i = 0; i < count; i++) {
+            target.spawn(random.nextFloat() * WIDTH, random.nextFloat() * HEIGHT,
+                    -15 + random.nextFloat() * 30, 40 + random.nextFloat() * 100,
+                    random.nextFloat() * 360, -45 + random.nextFloat() * 90,
+                    12 + random.nextFloat() * 28, random.nextInt(FRAMES));
+        }
+    }
+
+    private static void step(ParticlePool target) {
+        target.update(FRAME_SECONDS, 20, FRAMES);
+        for (int i = 0; i < target.getCount(); i++) {
+            if (target.getY(i) > HEIGHT + target.getSize(i)) {
+                target.set(i, target.getX(i), -target.getSize(i), 0, 80, 0, 30, target.getSize(i), 0);
+            }
+        }
+    }
+
+    @Benchmark
+    public int frame() {
+        step(pool);
+        return pool.writeQuads(vertices, texCoords, CELL_SIZE, FRAMES);
+    }
+
+    @Benchmark
+    public int unbatchedFrame() {
+        step(unbatchedPool);
+        int calls = 0;
+        for (int i = 0; i < unbatchedPool.getCount(); i++) {
+            int frame = unbatchedPool.getFrame(i);
+            float half = unbatchedPool.getSize(i) / 2;
+            drawCall[0] = (frame % FRAMES) * CELL_SIZE;
+            drawCall[1] = (frame / FRAMES) * CELL_SIZE;
+            drawCall[2] = unbatchedPool.getX(i) - half;
+            drawCall[3] = unbatchedPool.getY(i) - half;
+            drawCall[4] = unbatchedPool.getX(i) + half;
+            drawCall[5] = unbatchedPool.getY(i) + half;
+            drawCall[6] = unbatchedPool.getAngle(i);
+            calls++;
+        }
+        return calls;
+    }
+}
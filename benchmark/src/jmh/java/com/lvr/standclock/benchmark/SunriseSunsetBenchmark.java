@@ -0,0 +1,32 @@
+package com.lvr.standclock.benchmark;
+
+import com.lvr.standclock.SunriseSunsetCalculation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SunriseSunsetBenchmark {
+
+    // Same location as MainActivity
+    private final SunriseSunsetCalculation calculation = new SunriseSunsetCalculation(19.457216, 51.759445);
+
+    @Benchmark
+    public SunriseSunsetCalculation.DayResult calculateForDate() {
+        return calculation.calculateForDate(17, Calendar.OCTOBER, 2026);
+    }
+
+    @Benchmark
+    public SunriseSunsetCalculation.DayResult calculateOfficialForDate() {
+        return calculation.calculateOfficialForDate(17, Calendar.OCTOBER, 2026);
+    }
+}
@@ -0,0 +1,75 @@
+package com.lvr.standclock.benchmark;
+
+import com.lvr.standclock.VideoCatalog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Playlist selection and filename based brightness of CrossFadeVideoView.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VideoPlaylistBenchmark {
+
+    @Param({"10", "200"})
+    public int videoCount;
+
+    private VideoCatalog catalog;
+    private final Random random = new Random(42);
+    private boolean isDay;
+    private int nameIndex;
+    private String[] filenames;
+
+    @Setup
+    public void setup() {
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < videoCount; i++) {
+            switch (i % 4) {
+                case 0:
+                    paths.add("/sdcard/Movies/d_clip" + i + ".mp4");
+                    break;
+                case 1:
+                    paths.add("/sdcard/Movies/n_clip" + i + ".mp4");
+                    break;
+                case 2:
+                    paths.add("/sdcard/Movies/dn_clip" + i + ".mov");
+                    break;
+                default:
+                    paths.add("/sdcard/Movies/d_clip_b_75_" + i + ".mkv");
+                    break;
+            }
+        }
+        catalog = new VideoCatalog(paths);
+
+        filenames = new String[paths.size()];
+        for (int i = 0; i < paths.size(); i++) {
+            filenames[i] = paths.get(i).substring(paths.get(i).lastIndexOf('/') + 1);
+        }
+    }
+
+    @Benchmark
+    public String selectNextVideo() {
+        isDay = !isDay;
+        List<String> playlist = catalog.getCurrentPlaylist(isDay);
+        return playlist.get(random.nextInt(playlist.size()));
+    }
+
+    @Benchmark
+    public float calculateVideoBrightness() {
+        nameIndex = (nameIndex + 1) % filenames.length;
+        return VideoCatalog.calculateBrightness(filenames[nameIndex], isDay);
+    }
+}
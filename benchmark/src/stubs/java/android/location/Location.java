@@ -0,0 +1,17 @@
+package android.location;
+
+/**
+ * Compile-time stand-in for the framework class, needed only because
+ * SunriseSunsetCalculation has a Location constructor. The benchmarks use the
+ * coordinate constructor, the getters return a neutral 0.
+ */
+public class Location {
+
+    public double getLatitude() {
+        return 0;
+    }
+
+    public double getLongitude() {
+        return 0;
+    }
+}